@@ -0,0 +1,54 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Clock;
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.GameMetrics;
+import bguspl.set.Scheduler;
+import bguspl.set.TimerScheduler;
+import bguspl.set.UserInterface;
+import bguspl.set.UtilImpl;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds silent game environments for the benchmarks: no logging, and no display when given a UserInterfaceAdapter.
+ */
+final class BenchmarkEnv {
+
+    private static final Logger LOGGER = Logger.getLogger("benchmarks");
+
+    static {
+        LOGGER.setUseParentHandlers(false);
+        LOGGER.setLevel(Level.OFF);
+    }
+
+    private BenchmarkEnv() {
+    }
+
+    /**
+     * @param settings - pairs of property names and values, on top of the defaults of Config.
+     * @return - the configuration.
+     */
+    static Config config(String... settings) {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        properties.put("Hints", "False");
+        for (int i = 0; i < settings.length; i += 2)
+            properties.put(settings[i], settings[i + 1]);
+        return new Config(LOGGER, properties);
+    }
+
+    static Env create(Config config, UserInterface ui, Clock clock) {
+        return create(config, ui, clock, GameMetrics.disabled());
+    }
+
+    static Env create(Config config, UserInterface ui, Clock clock, GameMetrics metrics) {
+        return new Env(LOGGER, config, ui, new UtilImpl(config), GameJournal.disabled(), clock,
+                Scheduler.of(clock, () -> new TimerScheduler(clock, "freeze-timer")),
+                Scheduler.of(clock, () -> new TimerScheduler(clock, "ai-timer")), metrics);
+    }
+}
@@ -0,0 +1,90 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameMetrics;
+import bguspl.set.UserInterfaceAdapter;
+import bguspl.set.VirtualClock;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dealer under load: whole games played on a virtual clock, so all the time goes to the dealer, player and AI
+ * threads competing for the table and the claim queue. The score is games per second; the claims and their verdicts
+ * (points, penalties and claims left unchecked) and the token operations per second are reported next to it, as
+ * counted by the GameMetrics of the game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class DealerBenchmark {
+
+    @Param({"2", "8"})
+    int players;
+
+    @Param({"sets", "random"})
+    String strategy;
+
+    Config config;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long claims;
+        public long points;
+        public long penalties;
+        public long unchecked;
+        public long tokenOps;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            claims = points = penalties = unchecked = tokenOps = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        config = BenchmarkEnv.config("HumanPlayers", "0", "ComputerPlayers", Integer.toString(players),
+                "ComputerStrategy", strategy, "Simulation", "True", "TableDelaySeconds", "0.1");
+    }
+
+    @Benchmark
+    public int playGame(Counters counters) {
+        GameMetrics metrics = new GameMetrics();
+        Env env = BenchmarkEnv.create(config, new UserInterfaceAdapter(), new VirtualClock(0), metrics);
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.run();
+
+        counters.claims += metrics.counter(GameMetrics.CLAIMS_SUBMITTED).sum();
+        counters.points += metrics.counter(GameMetrics.CLAIMS_ACCEPTED).sum();
+        counters.penalties += metrics.counter(GameMetrics.CLAIMS_REJECTED).sum();
+        counters.unchecked += metrics.counter(GameMetrics.CLAIMS_UNCHECKED).sum();
+        counters.tokenOps += metrics.counter(GameMetrics.TOKEN_OPS).sum();
+        int score = 0;
+        for (Player player : players) score += player.score();
+        return score;
+    }
+}
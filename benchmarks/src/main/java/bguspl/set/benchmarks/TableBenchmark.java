@@ -0,0 +1,98 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.SystemClock;
+import bguspl.set.UserInterfaceAdapter;
+import bguspl.set.ex.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The table operations of the player threads, alone and with several players working on the same table at once.
+ * Every player places a token and takes it off again, moving over the slots, so it never reaches the maximum number of
+ * tokens and every call does work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TableBenchmark {
+
+    private static final int PLAYERS = 8;
+
+    @Param({"3", "6"})
+    int rows;
+
+    Table table;
+    final AtomicInteger nextPlayer = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class PlayerState {
+        int player;
+        int press;
+        int slots;
+
+        @Setup
+        public void setUp(TableBenchmark benchmark) {
+            player = benchmark.nextPlayer.getAndIncrement() % PLAYERS;
+            slots = benchmark.table.getTableSize();
+        }
+
+        int nextSlot() {
+            return press++ / 2 % slots;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Config config = BenchmarkEnv.config("Rows", Integer.toString(rows), "Columns", "4",
+                "HumanPlayers", "0", "ComputerPlayers", Integer.toString(PLAYERS));
+        table = new Table(BenchmarkEnv.create(config, new UserInterfaceAdapter(), new SystemClock()));
+        for (int slot = 0; slot < config.tableSize; slot++)
+            table.placeCard(slot, slot);
+    }
+
+    @Benchmark
+    public boolean placeOrRemoveToken(PlayerState state) {
+        return table.placeOrRemoveToken(state.player, state.nextSlot());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean placeOrRemoveTokenContended(PlayerState state) {
+        return table.placeOrRemoveToken(state.player, state.nextSlot());
+    }
+
+    @Benchmark
+    public boolean playerHasMaxTokens(PlayerState state) {
+        return table.playerHasMaxTokens(state.player);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean playerHasMaxTokensContended(PlayerState state) {
+        table.placeOrRemoveToken(state.player, state.nextSlot());
+        return table.playerHasMaxTokens(state.player);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> getEmptySlots() {
+        return table.GetEmptySlots();
+    }
+}
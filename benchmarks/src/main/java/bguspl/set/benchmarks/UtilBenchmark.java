@@ -0,0 +1,93 @@
+package bguspl.set.benchmarks;
+
+import bguspl.set.Config;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The set engine: testing a claimed set, and finding the sets among the cards on a table, for several deck
+ * configurations (featureSize ^ featureCount cards) and table sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UtilBenchmark {
+
+    @Param({"3", "4"})
+    int featureSize;
+
+    @Param({"4", "5", "6"})
+    int featureCount;
+
+    @Param({"12", "24"})
+    int tableSize;
+
+    Util util;
+    int[] table;
+    int[] legal;
+    int[] illegal;
+
+    @Setup
+    public void setUp() {
+        Config config = BenchmarkEnv.config("FeatureSize", Integer.toString(featureSize),
+                "FeatureCount", Integer.toString(featureCount));
+        util = new UtilImpl(config);
+
+        // a random table of distinct cards
+        Random random = new Random(42);
+        int[] deck = new int[config.deckSize];
+        Arrays.setAll(deck, i -> i);
+        for (int i = deck.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int card = deck[i];
+            deck[i] = deck[j];
+            deck[j] = card;
+        }
+        table = Arrays.copyOf(deck, Math.min(tableSize, deck.length));
+
+        // the cards 0, 1, ... differ only in the last feature, so the first featureSize cards are a legal set
+        legal = new int[featureSize];
+        Arrays.setAll(legal, i -> i);
+        illegal = legal.clone();
+        illegal[featureSize - 1] = featureSize; // shares the last feature with card 0
+    }
+
+    @Benchmark
+    public boolean testSetLegal() {
+        return util.testSet(legal);
+    }
+
+    @Benchmark
+    public boolean testSetIllegal() {
+        return util.testSet(illegal);
+    }
+
+    @Benchmark
+    public List<int[]> findFirstSet() {
+        return util.findSets(table, table.length, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findAllSets() {
+        return util.findSets(table, table.length, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,38 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that runs a fixed number of times faster (or slower) than real time, starting from the current time.
+ */
+public class AcceleratedClock implements Clock {
+
+    private final double speed;
+    private final long startMillis;
+    private final long startNanos;
+
+    /**
+     * @param speed - how many milliseconds of game time pass in one millisecond of real time.
+     */
+    public AcceleratedClock(double speed) {
+        if (!(speed > 0)) throw new IllegalArgumentException("clock speed must be positive: " + speed);
+        this.speed = speed;
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return startMillis + (long) ((System.nanoTime() - startNanos) * speed / 1_000_000.0);
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis > 0) TimeUnit.NANOSECONDS.sleep(toNanos(millis));
+    }
+
+    @Override
+    public long toNanos(long millis) {
+        return (long) Math.ceil(millis * 1_000_000.0 / speed);
+    }
+}
@@ -0,0 +1,185 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * A log handler that hands records over to a background writer thread through a RingWriter of preallocated
+ * entries. The game threads only fill an entry; formatting and file output happen on the writer thread, which
+ * writes everything that is pending in one batch before flushing the file.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * The number of entries in the ring (a power of 2).
+     */
+    private static final int CAPACITY = 1 << 13;
+
+    /**
+     * An entry of the ring. Either holds a LogRecord, or a message pattern with up to 3 arguments which is only
+     * formatted on the writer thread.
+     */
+    private static final class Entry {
+        LogRecord record;
+        long millis;
+        Level level;
+        String tag;
+        String pattern;
+        long arg0, arg1, arg2;
+    }
+
+    private final Writer out;
+    private final RingWriter<Entry> ring;
+
+    /**
+     * @param filename - the log file to write to (created or truncated).
+     * @throws IOException - if the file cannot be opened.
+     */
+    public AsyncLogHandler(String filename) throws IOException {
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+        ring = new RingWriter<>(CAPACITY, Entry::new, new Output(), "log-writer");
+    }
+
+    /**
+     * Finds the async handler of a logger.
+     *
+     * @param logger - the logger.
+     * @return - the first AsyncLogHandler of the logger, or null if it has none.
+     */
+    public static AsyncLogHandler of(Logger logger) {
+        for (Handler handler : logger.getHandlers())
+            if (handler instanceof AsyncLogHandler)
+                return (AsyncLogHandler) handler;
+        return null;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (ring.isClosed() || !isLoggable(record)) return;
+        long sequence = ring.claim();
+        ring.entry(sequence).record = record;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Logs a message without building it on the calling thread. The pattern refers to the arguments as {0}, {1}
+     * and {2}, and is expected to be a constant (it is kept as is until the writer formats it).
+     *
+     * @param level   - the level of the message (checked before anything is queued).
+     * @param pattern - the message pattern.
+     * @param arg0    - the first argument.
+     * @param arg1    - the second argument.
+     * @param arg2    - the third argument.
+     */
+    public void log(Level level, String pattern, long arg0, long arg1, long arg2) {
+        log(level, "", pattern, arg0, arg1, arg2);
+    }
+
+    /**
+     * Logs a message as log does, after a tag that tells apart the messages of different sources (such as the games
+     * of a GameHost).
+     *
+     * @param level   - the level of the message (checked before anything is queued).
+     * @param tag     - the prefix of the message, expected to be built once per source.
+     * @param pattern - the message pattern.
+     * @param arg0    - the first argument.
+     * @param arg1    - the second argument.
+     * @param arg2    - the third argument.
+     */
+    public void log(Level level, String tag, String pattern, long arg0, long arg1, long arg2) {
+        if (ring.isClosed() || level.intValue() < getLevel().intValue() || getLevel() == Level.OFF) return;
+        long sequence = ring.claim();
+        Entry entry = ring.entry(sequence);
+        entry.millis = System.currentTimeMillis();
+        entry.level = level;
+        entry.tag = tag;
+        entry.pattern = pattern;
+        entry.arg0 = arg0;
+        entry.arg1 = arg1;
+        entry.arg2 = arg2;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Waits until every message that was logged before the call is written to the file.
+     */
+    @Override
+    public void flush() {
+        ring.flush();
+    }
+
+    @Override
+    public void close() {
+        ring.close();
+    }
+
+    /**
+     * Formats the entries and writes them to the file, on the writer thread of the ring.
+     */
+    private class Output implements RingWriter.Sink<Entry> {
+
+        // setMillis is deprecated from Java 9 for setInstant, which Java 8 (the target of the build) does not have
+        @SuppressWarnings("deprecation")
+        @Override
+        public void write(Entry entry) {
+            LogRecord record = entry.record;
+            if (record == null) {
+                String message = format(entry.tag, entry.pattern, entry.arg0, entry.arg1, entry.arg2);
+                record = new LogRecord(entry.level, message);
+                record.setMillis(entry.millis);
+            }
+            entry.record = null;
+            entry.tag = null;
+            entry.pattern = null;
+            try {
+                out.write(getFormatter().format(record));
+            } catch (IOException | RuntimeException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+
+        @Override
+        public void endOfBatch() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+    }
+
+    private static String format(String tag, String pattern, long arg0, long arg1, long arg2) {
+        StringBuilder sb = new StringBuilder(tag.length() + pattern.length() + 16).append(tag);
+        for (int i = 0; i < pattern.length(); ++i) {
+            char c = pattern.charAt(i);
+            if (c == '{' && i + 2 < pattern.length() && pattern.charAt(i + 2) == '}') {
+                char index = pattern.charAt(i + 1);
+                if (index >= '0' && index <= '2') {
+                    sb.append(index == '0' ? arg0 : index == '1' ? arg1 : arg2);
+                    i += 2;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
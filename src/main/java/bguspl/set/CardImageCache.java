@@ -0,0 +1,161 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded cache of card images, already scaled to the size of a cell. An image is loaded the first time it is
+ * asked for (or by a background warm-up), and the least recently used images are evicted once the cache is full, so
+ * the start-up time and the memory do not grow with the size of the deck. Cards without an image resource are drawn
+ * by a CardRenderer instead.
+ */
+public class CardImageCache {
+
+    /**
+     * The key of the empty card image.
+     */
+    public static final int EMPTY_CARD = -1;
+
+    private final Config config;
+    private final CardRenderer renderer;
+    private final int capacity;
+    private final Map<Integer, Image> images;
+    private volatile Image emptyCard;
+    private final ExecutorService loaders;
+    private final AtomicInteger loads;
+
+    /**
+     * @param config   - the game configuration.
+     * @param renderer - draws the cards that have no image resource (null to require the resources).
+     * @param capacity - the most card images to keep (the empty card is always kept).
+     * @param threads  - the number of background threads for warming up the cache.
+     */
+    public CardImageCache(Config config, CardRenderer renderer, int capacity, int threads) {
+        this.config = config;
+        this.renderer = renderer;
+        this.capacity = capacity;
+        images = new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > CardImageCache.this.capacity;
+            }
+        };
+        AtomicInteger count = new AtomicInteger();
+        loaders = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "card-loader-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        loads = new AtomicInteger();
+    }
+
+    /**
+     * Returns the scaled image of a card, loading it if it is not cached.
+     *
+     * @param card - the card, or EMPTY_CARD.
+     * @return - the image of the card.
+     */
+    public Image get(int card) {
+        if (card == EMPTY_CARD) {
+            if (emptyCard == null) emptyCard = load(EMPTY_CARD);
+            return emptyCard;
+        }
+
+        Image image;
+        synchronized (images) {
+            image = images.get(card);
+        }
+        if (image != null) return image;
+
+        // loaded outside the lock, so a slow load does not hold up the cached cards (a card may rarely load twice)
+        image = load(card);
+        synchronized (images) {
+            Image raced = images.putIfAbsent(card, image);
+            return raced != null ? raced : image;
+        }
+    }
+
+    /**
+     * Loads the images of some cards in the background, up to the capacity of the cache.
+     *
+     * @param from - the first card to load.
+     * @param to   - the card after the last one to load.
+     */
+    public void warmUp(int from, int to) {
+        to = Math.min(to, from + capacity);
+        for (int card = from; card < to; card++) {
+            int next = card;
+            loaders.execute(() -> get(next));
+        }
+    }
+
+    /**
+     * @return - the number of card images in the cache (not counting the empty card).
+     */
+    public int size() {
+        synchronized (images) {
+            return images.size();
+        }
+    }
+
+    /**
+     * @return - the number of images loaded from their resources or drawn so far.
+     */
+    public int loads() {
+        return loads.get();
+    }
+
+    /**
+     * Stops the background warm-up.
+     */
+    public void close() {
+        loaders.shutdownNow();
+    }
+
+    private Image load(int card) {
+        String filename = card == EMPTY_CARD ? "cards/empty_card.png"
+                : "cards/" + UserInterfaceSwing.intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+        // the resource names only work for features of up to 10 values, otherwise they would conflict
+        URL resource = config.featureSize < 10 ? getClass().getClassLoader().getResource(filename) : null;
+        if (resource == null) {
+            if (renderer == null)
+                throw new RuntimeException(new FileNotFoundException(filename));
+            loads.incrementAndGet();
+            return card == EMPTY_CARD ? renderer.renderEmpty() : renderer.render(card);
+        }
+        try {
+            BufferedImage source = ImageIO.read(resource);
+            loads.incrementAndGet();
+            return scale(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Image scale(BufferedImage source) {
+        int width = config.cellWidth, height = config.cellHeight;
+        BufferedImage scaled = GraphicsEnvironment.isHeadless()
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                        .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+}
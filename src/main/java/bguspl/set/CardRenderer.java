@@ -0,0 +1,176 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws card images from the features of the cards, for decks that have no image resources. The first four features
+ * are drawn as in the classic game: the color, the shape, the number of shapes and the shading. Any further features
+ * are drawn as a row of letters at the bottom of the card. Features of any size get their own distinct values (more
+ * colors around the color wheel, polygons with more sides, more shading patterns).
+ */
+public class CardRenderer {
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color BORDER = Color.GRAY;
+
+    private final Config config;
+    private final Util util;
+    private final Color[] colors;
+
+    public CardRenderer(Config config, Util util) {
+        this.config = config;
+        this.util = util;
+        colors = new Color[config.featureSize];
+        for (int i = 0; i < colors.length; i++)
+            colors[i] = Color.getHSBColor((float) i / colors.length, 0.85f, 0.8f);
+    }
+
+    /**
+     * @return - the image of an empty slot, of the size of a cell.
+     */
+    public BufferedImage renderEmpty() {
+        BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.LIGHT_GRAY);
+            g.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[]{8, 6}, 0));
+            g.draw(cardOutline());
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * @param card - the card.
+     * @return - the image of the card, of the size of a cell.
+     */
+    public BufferedImage render(int card) {
+        int[] features = util.cardToFeatures(card);
+        BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Shape outline = cardOutline();
+            g.setColor(BACKGROUND);
+            g.fill(outline);
+            g.setColor(BORDER);
+            g.draw(outline);
+
+            Color color = colors[feature(features, 0)];
+            int shape = feature(features, 1);
+            int count = feature(features, 2) + 1;
+            int shading = feature(features, 3);
+
+            int extras = Math.max(0, features.length - 4);
+            int footer = extras > 0 ? config.cellHeight / 6 : 0;
+            double slotWidth = (config.cellWidth - 16.0) / count;
+            double width = Math.max(2, Math.min(slotWidth - 6, config.cellWidth / 4.0));
+            double height = (config.cellHeight - footer) * 0.65;
+            double top = (config.cellHeight - footer - height) / 2;
+            double left = (config.cellWidth - slotWidth * count) / 2;
+            for (int i = 0; i < count; i++) {
+                double x = left + slotWidth * i + (slotWidth - width) / 2;
+                Shape symbol = symbol(shape, x, top, width, height);
+                shade(g, symbol, color, shading);
+            }
+
+            if (extras > 0) {
+                StringBuilder text = new StringBuilder();
+                for (int i = 4; i < features.length; i++) {
+                    if (features[i] < 26) text.append((char) ('A' + features[i]));
+                    else text.append(features[i]);
+                    text.append(' ');
+                }
+                g.setColor(Color.DARK_GRAY);
+                g.setFont(new Font("SansSerif", Font.BOLD, Math.max(8, footer - 4)));
+                FontMetrics metrics = g.getFontMetrics();
+                String label = text.toString().trim();
+                g.drawString(label, (config.cellWidth - metrics.stringWidth(label)) / 2, config.cellHeight - footer / 3 - 2);
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static int feature(int[] features, int i) {
+        return i < features.length ? features[i] : 0;
+    }
+
+    private Shape cardOutline() {
+        return new RoundRectangle2D.Double(3, 3, config.cellWidth - 7, config.cellHeight - 7, 16, 16);
+    }
+
+    /**
+     * The shapes are an oval, a diamond and a wave, then polygons with more and more sides (from a pentagon on, so
+     * none of them is the diamond).
+     */
+    private static Shape symbol(int shape, double x, double y, double width, double height) {
+        switch (shape) {
+            case 0:
+                return new RoundRectangle2D.Double(x, y, width, height, width, width);
+            case 1: {
+                Path2D.Double diamond = new Path2D.Double();
+                diamond.moveTo(x + width / 2, y);
+                diamond.lineTo(x + width, y + height / 2);
+                diamond.lineTo(x + width / 2, y + height);
+                diamond.lineTo(x, y + height / 2);
+                diamond.closePath();
+                return diamond;
+            }
+            case 2: {
+                Path2D.Double wave = new Path2D.Double();
+                wave.moveTo(x + width * 0.2, y);
+                wave.curveTo(x + width * 1.1, y + height * 0.1, x + width * 0.4, y + height * 0.5, x + width, y + height);
+                wave.curveTo(x + width * 0.1, y + height * 0.9, x + width * 0.6, y + height * 0.5, x + width * 0.2, y);
+                wave.closePath();
+                return wave;
+            }
+            default: {
+                int sides = shape + 2;
+                Path2D.Double polygon = new Path2D.Double();
+                for (int i = 0; i < sides; i++) {
+                    double angle = -Math.PI / 2 + 2 * Math.PI * i / sides;
+                    double px = x + width / 2 + Math.cos(angle) * width / 2;
+                    double py = y + height / 2 + Math.sin(angle) * height / 2;
+                    if (i == 0) polygon.moveTo(px, py);
+                    else polygon.lineTo(px, py);
+                }
+                polygon.closePath();
+                return polygon;
+            }
+        }
+    }
+
+    /**
+     * The shadings are solid, striped and open, then stripes at other angles, spread evenly between the horizontal
+     * stripes and their half turn (which would look the same).
+     */
+    private void shade(Graphics2D g, Shape symbol, Color color, int shading) {
+        g.setColor(color);
+        if (shading == 0) {
+            g.fill(symbol);
+        } else if (shading != 2) {
+            Shape clip = g.getClip();
+            g.clip(symbol);
+            Rectangle bounds = symbol.getBounds();
+            AffineTransform transform = g.getTransform();
+            double angle = shading == 1 ? 0 : Math.PI * (shading - 2) / (config.featureSize - 2);
+            g.rotate(angle, bounds.getCenterX(), bounds.getCenterY());
+            g.setStroke(new BasicStroke(1));
+            int reach = bounds.width + bounds.height;
+            for (int y = bounds.y - reach; y < bounds.y + reach; y += 4)
+                g.drawLine(bounds.x - reach, y, bounds.x + reach, y);
+            g.setTransform(transform);
+            g.setClip(clip);
+        }
+        g.setStroke(new BasicStroke(2));
+        g.draw(symbol);
+    }
+}
@@ -0,0 +1,37 @@
+package bguspl.set;
+
+/**
+ * The source of time for the game. All the game components read the time and wait through the clock of the
+ * environment, so the game can run in real time, faster than real time, or on a timeline that is moved by hand.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time of the game, in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Lets the given amount of game time pass for the calling thread.
+     *
+     * @param millis - the time to sleep, in milliseconds.
+     * @throws InterruptedException - if the thread is interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Converts a span of game time to the real time a thread should park for while waiting for it.
+     *
+     * @param millis - the span of game time, in milliseconds.
+     * @return - the real time to park for, in nanoseconds.
+     */
+    long toNanos(long millis);
+
+    /**
+     * Called by a thread that has nothing to do until the given game time. A clock that does not move by itself
+     * may skip ahead towards it.
+     *
+     * @param until - the time of the next thing the thread has to do, in milliseconds.
+     */
+    default void idle(long until) {}
+}
@@ -21,6 +21,21 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The file to write the binary game journal to (no journal if empty)
+     */
+    public final String journalFile;
+
+    /**
+     * The file to append the game metrics to periodically (no metrics if empty)
+     */
+    public final String metricsFile;
+
+    /**
+     * The number of milliseconds between the dumps of the metrics to the metrics file
+     */
+    public final long metricsIntervalMillis;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -46,11 +61,55 @@ public class Config {
      */
     public final int computerPlayers;
 
+    /**
+     * How the computer players choose their keys: "random", or "sets" to look for the legal sets on the table
+     */
+    public final String computerStrategy;
+
+    /**
+     * The timing profile of the computer players: "none" to press keys as fast as the players handle them, or a
+     * preset ("casual", "expert", "flood") for the Ai* settings below (each of them can also be set on its own)
+     */
+    public final String aiProfile;
+
+    /**
+     * The reaction time of a computer player before it starts to act on a change: a normal distribution with the
+     * given mean and deviation, plus an exponential tail with the given mean (0 for no reaction time)
+     */
+    public final long aiReactionMillis;
+    public final long aiReactionJitterMillis;
+    public final long aiReactionTailMillis;
+
+    /**
+     * The probability that a key pressed by a computer player is a random key instead of the intended one
+     */
+    public final double aiErrorRate;
+
+    /**
+     * The most keys per second a computer player presses in a row (0 for no limit)
+     */
+    public final double aiKeysPerSecond;
+
     /**
      * The total number of players (human + computer) in the game
      */
     public final int players;
 
+    /**
+     * Whether to run the dealer, player and AI threads as virtual threads (requires a JVM that supports them)
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Whether to run a headless simulation on a virtual clock, as fast as possible (no user interface and no real delays)
+     */
+    public final boolean simulation;
+
+    /**
+     * How many times faster than real time the game clock runs (ignored in a simulation)
+     */
+    public final double clockSpeed;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -76,6 +135,11 @@ public class Config {
      */
     public final long pointFreezeMillis;
 
+    /**
+     * The number of milliseconds between updates of a frozen player's remaining freeze time on the display
+     */
+    public final long freezeRefreshMillis;
+
     /**
      * The number of milliseconds to delay before removing/placing a card on the table
      */
@@ -86,6 +150,16 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The TCP port to accept remote human players on (0 for no network server)
+     */
+    public final int serverPort;
+
+    /**
+     * The number of milliseconds between the state deltas sent to the watchers of the game
+     */
+    public final long stateTickMillis;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -132,6 +206,16 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The most times per second the display is redrawn
+     */
+    public final int maxFrameRate;
+
+    /**
+     * The most card images to keep in memory, scaled to the cell size
+     */
+    public final int cardCacheSize;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -155,7 +239,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -192,6 +276,9 @@ public class Config {
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        metricsFile = properties.getProperty("MetricsFile", "").trim();
+        metricsIntervalMillis = (long) (Double.parseDouble(properties.getProperty("MetricsIntervalSeconds", "1")) * 1000.0);
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
@@ -201,15 +288,56 @@ public class Config {
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        computerStrategy = properties.getProperty("ComputerStrategy", "random").trim().toLowerCase();
+
+        // profile presets: reaction, jitter and tail (seconds), error rate, keys per second
+        aiProfile = properties.getProperty("AiProfile", "none").trim().toLowerCase();
+        String[] preset;
+        switch (aiProfile) {
+            case "none":
+                preset = new String[]{"0", "0", "0", "0", "0"};
+                break;
+            case "casual":
+                preset = new String[]{"1.2", "0.3", "0.8", "0.1", "3"};
+                break;
+            case "expert":
+                preset = new String[]{"0.5", "0.1", "0.2", "0.02", "8"};
+                break;
+            case "flood":
+                preset = new String[]{"0", "0", "0", "0.5", "1000"};
+                break;
+            default:
+                logger.severe("unknown AI profile " + aiProfile + ", using none");
+                preset = new String[]{"0", "0", "0", "0", "0"};
+        }
+        aiReactionMillis = (long) (Double.parseDouble(properties.getProperty("AiReactionSeconds", preset[0])) * 1000.0);
+        aiReactionJitterMillis = (long) (Double.parseDouble(properties.getProperty("AiReactionJitterSeconds", preset[1])) * 1000.0);
+        aiReactionTailMillis = (long) (Double.parseDouble(properties.getProperty("AiReactionTailSeconds", preset[2])) * 1000.0);
+        aiErrorRate = Double.parseDouble(properties.getProperty("AiErrorRate", preset[3]));
+        aiKeysPerSecond = Double.parseDouble(properties.getProperty("AiKeysPerSecond", preset[4]));
         players = humanPlayers + computerPlayers;
 
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+        if (virtualThreads && !ThreadLogger.virtualThreadsSupported())
+            logger.severe("warning: virtual threads are not supported by this JVM, using platform threads.");
+
+        simulation = Boolean.parseBoolean(properties.getProperty("Simulation", "False"));
+        if (simulation && humanPlayers > 0)
+            logger.severe("warning: running a simulation with human players, they will not be able to play");
+        clockSpeed = Double.parseDouble(properties.getProperty("ClockSpeed", "1"));
+        if (clockSpeed <= 0)
+            logger.severe("invalid clock speed: " + clockSpeed);
+
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
+        freezeRefreshMillis = (long) (Double.parseDouble(properties.getProperty("FreezeRefreshSeconds", "1")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        serverPort = Integer.parseInt(properties.getProperty("ServerPort", "0"));
+        stateTickMillis = (long) (Double.parseDouble(properties.getProperty("StateTickSeconds", "0.05")) * 1000.0);
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +352,13 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        int frameRate = Integer.parseInt(properties.getProperty("MaxFrameRate", "60"));
+        if (frameRate <= 0) {
+            logger.severe("invalid max frame rate: " + frameRate + ", using 60");
+            frameRate = 60;
+        }
+        maxFrameRate = frameRate;
+        cardCacheSize = Math.max(1, Integer.parseInt(properties.getProperty("CardCacheSize", "128")));
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
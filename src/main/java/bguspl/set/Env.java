@@ -8,11 +8,36 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final GameJournal journal;
+    public final Clock clock;
+    public final Scheduler scheduler;
+    /**
+     * Runs the key presses of the computer players that follow a ReactionProfile, which plan their next key when
+     * they press one. Kept apart from the scheduler of the freezes, so the planning never delays them (with a
+     * simulated clock both are the clock itself).
+     */
+    public final Scheduler aiScheduler;
+    public final GameMetrics metrics;
 
+    /**
+     * An environment in real time, with no journal and no metrics.
+     */
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, GameJournal.disabled(), new SystemClock(),
+                new TimerScheduler(new SystemClock(), "freeze-timer"),
+                new TimerScheduler(new SystemClock(), "ai-timer"), GameMetrics.disabled());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameJournal journal, Clock clock,
+               Scheduler scheduler, Scheduler aiScheduler, GameMetrics metrics) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.journal = journal;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.aiScheduler = aiScheduler;
+        this.metrics = metrics;
     }
 }
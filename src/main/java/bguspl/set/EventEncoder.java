@@ -0,0 +1,110 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the calls to a user interface into game events, and forwards the calls to the user interface it wraps. This
+ * is the one mapping of the calls to events that the journal records and the network server sends.
+ * <p>
+ * An event is (type, player, slot, value), where the type tells the meaning of the other fields (see
+ * GameJournal.Type). Encoded, it takes EVENT_SIZE bytes: (type: short, player: short, slot: int, value: long).
+ */
+public abstract class EventEncoder implements UserInterface {
+
+    public static final int EVENT_SIZE = 16;
+
+    private final UserInterface ui;
+
+    /**
+     * @param ui - the user interface to forward the calls to (may be null).
+     */
+    protected EventEncoder(UserInterface ui) {
+        this.ui = ui;
+    }
+
+    /**
+     * Handles an event. Called on the thread that called the user interface.
+     */
+    protected abstract void event(GameJournal.Type type, int player, int slot, long value);
+
+    /**
+     * Encodes an event.
+     *
+     * @param out - the buffer to put the event to (it must have EVENT_SIZE bytes left).
+     */
+    public static void encode(ByteBuffer out, GameJournal.Type type, int player, int slot, long value) {
+        out.putShort((short) type.ordinal()).putShort((short) player).putInt(slot).putLong(value);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        event(GameJournal.Type.CardPlaced, -1, slot, card);
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        event(GameJournal.Type.CardRemoved, -1, slot, 0);
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        event(GameJournal.Type.TokenPlaced, player, slot, 0);
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        event(GameJournal.Type.TokensRemoved, -1, -1, 0);
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        event(GameJournal.Type.TokensRemoved, -1, slot, 0);
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        event(GameJournal.Type.TokenRemoved, player, slot, 0);
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        event(GameJournal.Type.Countdown, -1, warn ? 1 : 0, millies);
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        event(GameJournal.Type.Elapsed, -1, -1, millies);
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        event(GameJournal.Type.Freeze, player, -1, millies);
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        event(GameJournal.Type.Score, player, -1, score);
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        for (int player : players)
+            event(GameJournal.Type.Winner, player, -1, 0);
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+    }
+}
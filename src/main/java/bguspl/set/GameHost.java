@@ -0,0 +1,263 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent headless games in one process. Every game gets its own Env, Table, Dealer and players (and
+ * its own clock in a simulation), while the games share the configuration, the logger, the utilities and the timers
+ * of the freezes and of the key presses of the computer players. Every line a game logs starts with "game N: ", so
+ * the games can be told apart in the shared log. The dealers run on a bounded pool, so at most a given number of
+ * games are played at the same time and the rest wait for their turn. All the players of the hosted games are
+ * computer players.
+ * <p>
+ * A game keeps a dealer thread and a thread for every player (and for the AI of a player without a reaction profile)
+ * for as long as it lasts. With VirtualThreads, which main turns on when the JVM supports them unless the
+ * configuration says otherwise, these are virtual threads, so the host can hold a thousand tables and more at the
+ * same time.
+ */
+public class GameHost {
+
+    /**
+     * The outcome of a hosted game.
+     */
+    public static class Result {
+        public final int game;
+        public final int[] scores;
+        public final long gameMillis;
+
+        Result(int game, int[] scores, long gameMillis) {
+            this.game = game;
+            this.scores = scores;
+            this.gameMillis = gameMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + game + ": scores " + Arrays.toString(scores) + " in " + gameMillis + " ms of game time";
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    /**
+     * The timers shared by the games in real time, with a thread for every game that may be played at the same time
+     * (up to a thread per processor): the freeze timer runs the freeze updates and the AI timer the key presses of the
+     * computer players (each planning the next move), so a busy game delays the others by at most its share of the
+     * threads.
+     */
+    private final Scheduler timer;
+    private final Scheduler aiTimer;
+    private final ExecutorService pool;
+    private final Set<Dealer> running;
+    private final AtomicInteger nextGame;
+    private volatile boolean closed;
+
+    private final LongAdder gamesStarted;
+    private final LongAdder gamesFinished;
+    private final LongAdder setsFound;
+    private final LongAdder gameMillis;
+    private final long startNanos;
+
+    /**
+     * @param logger      - the logger shared by all the games.
+     * @param config      - the configuration shared by all the games.
+     * @param parallelism - the most games to play at the same time.
+     */
+    public GameHost(Logger logger, Config config, int parallelism) {
+        this.logger = logger;
+        this.config = config;
+        util = new UtilImpl(config);
+        int timerThreads = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+        timer = new TimerScheduler(new SystemClock(), "host-freeze-timer", timerThreads);
+        aiTimer = new TimerScheduler(new SystemClock(), "host-ai-timer", timerThreads);
+        AtomicInteger threads = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = ThreadLogger.newThread(runnable, "host-dealer-" + threads.getAndIncrement(),
+                    config.virtualThreads);
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = ConcurrentHashMap.newKeySet();
+        nextGame = new AtomicInteger();
+        gamesStarted = new LongAdder();
+        gamesFinished = new LongAdder();
+        setsFound = new LongAdder();
+        gameMillis = new LongAdder();
+        startNanos = System.nanoTime();
+
+        System.out.println("running without a user interface. Check logs.");
+        if (config.humanPlayers > 0)
+            logger.severe("warning: hosted games have no keyboard input, all the players will be computer players");
+    }
+
+    /**
+     * A logger that tags the messages of one game and hands them to the shared logger of the host.
+     */
+    static final class GameLogger extends Logger {
+
+        private final String tag;
+
+        GameLogger(Logger host, String tag) {
+            super(host.getName(), null);
+            this.tag = tag;
+            setParent(host);
+        }
+
+        @Override
+        public void log(LogRecord record) {
+            record.setMessage(tag + record.getMessage());
+            super.log(record);
+        }
+    }
+
+    /**
+     * Queues a new game to be played when the pool has room for it.
+     *
+     * @return - the result of the game, once it is over.
+     */
+    public Future<Result> submit() {
+        int game = nextGame.getAndIncrement();
+        return pool.submit(() -> play(game));
+    }
+
+    private Result play(int game) {
+        Clock clock = config.simulation ? new VirtualClock(System.currentTimeMillis()) : new SystemClock();
+        String tag = "game " + game + ": ";
+        UserInterface ui = new UserInterfaceDecorator(logger, util, null, tag);
+        Env env = new Env(new GameLogger(logger, tag), config, ui, util, GameJournal.disabled(), clock,
+                Scheduler.of(clock, () -> timer), Scheduler.of(clock, () -> aiTimer), GameMetrics.disabled());
+
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        gamesStarted.increment();
+        running.add(dealer);
+        // a game that starts while the host shuts down may have been missed by shutdown, so it ends itself
+        if (closed) dealer.terminate();
+        long start = clock.currentTimeMillis();
+        try {
+            dealer.run();
+        } finally {
+            running.remove(dealer);
+        }
+        long millis = clock.currentTimeMillis() - start;
+
+        int[] scores = new int[players.length];
+        for (int i = 0; i < players.length; i++) {
+            scores[i] = players[i].score();
+            setsFound.add(scores[i]);
+        }
+        gameMillis.add(millis);
+        gamesFinished.increment();
+        return new Result(game, scores, millis);
+    }
+
+    /**
+     * @return - the number of games that started so far.
+     */
+    public long gamesStarted() {
+        return gamesStarted.sum();
+    }
+
+    /**
+     * @return - the number of games that are over.
+     */
+    public long gamesFinished() {
+        return gamesFinished.sum();
+    }
+
+    /**
+     * @return - the number of games being played right now.
+     */
+    public int gamesRunning() {
+        return running.size();
+    }
+
+    /**
+     * @return - the number of legal sets found in all the finished games.
+     */
+    public long setsFound() {
+        return setsFound.sum();
+    }
+
+    /**
+     * @return - a one line summary of the aggregate throughput of the host.
+     */
+    public String summary() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long finished = gamesFinished.sum();
+        return String.format("%d games finished (%d running) in %.1f s: %.1f games/s, %.1f sets/s, %.0f ms of game time per game",
+                finished, gamesRunning(), seconds, finished / seconds, setsFound.sum() / seconds,
+                finished == 0 ? 0.0 : (double) gameMillis.sum() / finished);
+    }
+
+    /**
+     * Stops accepting games, terminates the games in progress and waits for the pool to finish.
+     *
+     * @param timeoutMillis - the longest time to wait, in milliseconds.
+     * @return - true iff all the games ended in time.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        closed = true;
+        pool.shutdownNow();
+        for (Dealer dealer : running)
+            dealer.terminate();
+        boolean ended = pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        timer.shutdown();
+        aiTimer.shutdown();
+        return ended;
+    }
+
+    /**
+     * Plays a number of headless games with the settings of config.properties and prints the aggregate results.
+     *
+     * @param args - the number of games (default 100), and the most games to play at the same time (default: the
+     *             number of processors).
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Logger logger = Main.initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        Properties properties = Config.loadProperties("config.properties", logger);
+        properties.putIfAbsent("VirtualThreads", Boolean.toString(ThreadLogger.virtualThreadsSupported()));
+        Config config = new Config(logger, properties);
+        GameHost host = new GameHost(logger, config, parallelism);
+
+        Future<?>[] results = new Future<?>[games];
+        for (int i = 0; i < games; i++)
+            results[i] = host.submit();
+        for (Future<?> result : results) {
+            logger.info(result.get().toString());
+        }
+
+        System.out.println(host.summary());
+        logger.severe(host.summary());
+        host.shutdown(Long.MAX_VALUE);
+        ThreadLogger.logStop(logger, Thread.currentThread().getName());
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
@@ -0,0 +1,467 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * A compact binary journal of the game events. Every event is a fixed-width record. The game threads only fill an
+ * entry of a RingWriter, and its writer thread copies the entries to a buffer that it writes to the file through a
+ * FileChannel, so the game never waits for the disk (unless the writer falls a whole ring behind). If writing fails,
+ * the error is logged and the journal disables itself. A journal file can be read back with a Reader, either record
+ * by record for analysis or replayed into any UserInterface.
+ * <p>
+ * The records are written in the order their events were appended, and their times never go backwards (an event
+ * that read the clock just before an earlier one gets the time of the earlier one).
+ * <p>
+ * File layout: a header (magic, version, record size, start time), followed by records of
+ * (millis since start: long, type: short, player: short, slot: int, value: long), that is the time followed by the
+ * event as EventEncoder encodes it.
+ */
+public class GameJournal implements Closeable {
+
+    /**
+     * The types of the journal records, and the meaning of their fields.
+     */
+    public enum Type {
+        CardPlaced,     // slot, value = card
+        CardRemoved,    // slot
+        TokenPlaced,    // player, slot
+        TokenRemoved,   // player, slot
+        TokensRemoved,  // slot (-1 for all the slots)
+        ClaimSubmitted, // player, slot = number of slots, value = the slots (8 bits each, first slot lowest)
+        ClaimVerdict,   // player, value = the ordinal of the resulting Player.State
+        Score,          // player, value = score
+        Freeze,         // player, value = millis
+        Countdown,      // slot = 1 if warning, value = millis
+        Elapsed,        // value = millis
+        Reshuffle,      // no fields
+        Winner;         // player (one record per winner)
+
+        private static final Type[] values = values();
+    }
+
+    private static final int MAGIC = 0x5345544A; // "SETJ"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 8 + EventEncoder.EVENT_SIZE;
+
+    /**
+     * The most slots a ClaimSubmitted record can hold.
+     */
+    public static final int MAX_CLAIM_SLOTS = 8;
+
+    /**
+     * The most slots of a table whose claims can be recorded (a ClaimSubmitted record holds 8 bits per slot).
+     */
+    public static final int MAX_TABLE_SLOTS = 1 << 8;
+
+    /**
+     * The number of entries in the ring (a power of 2).
+     */
+    private static final int CAPACITY = 1 << 13;
+
+    private static final GameJournal DISABLED = new GameJournal();
+
+    /**
+     * An entry of the ring, holding the fields of a record.
+     */
+    private static final class Entry {
+        long millis;
+        Type type;
+        int player;
+        int slot;
+        long value;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer; // used by the writer thread only
+    private final Clock clock;
+    private final Logger logger;
+    private final long startMillis;
+    private final RingWriter<Entry> ring;
+    private volatile boolean failed;
+
+    private GameJournal() {
+        channel = null;
+        buffer = null;
+        clock = null;
+        logger = null;
+        startMillis = 0;
+        ring = null;
+    }
+
+    /**
+     * Creates (or truncates) a journal file and writes its header. The records are timed by the wall clock.
+     *
+     * @param path - the journal file.
+     * @throws IOException - if the file cannot be created.
+     */
+    public GameJournal(Path path) throws IOException {
+        this(path, new SystemClock());
+    }
+
+    /**
+     * Creates (or truncates) a journal file and writes its header.
+     *
+     * @param path  - the journal file.
+     * @param clock - the clock of the game, which times the records.
+     * @throws IOException - if the file cannot be created.
+     */
+    public GameJournal(Path path, Clock clock) throws IOException {
+        this(path, clock, Logger.getLogger(GameJournal.class.getName()));
+    }
+
+    /**
+     * Creates (or truncates) a journal file and writes its header.
+     *
+     * @param path   - the journal file.
+     * @param clock  - the clock of the game, which times the records.
+     * @param logger - the logger to report write errors to.
+     * @throws IOException - if the file cannot be created.
+     */
+    public GameJournal(Path path, Clock clock, Logger logger) throws IOException {
+        this(path, clock, logger, null);
+    }
+
+    /**
+     * Creates (or truncates) a journal file for a game and writes its header, after checking that the records can
+     * hold the claims of the game.
+     *
+     * @param path   - the journal file.
+     * @param clock  - the clock of the game, which times the records.
+     * @param logger - the logger to report write errors to.
+     * @param config - the game configuration (null to skip the check).
+     * @throws IOException              - if the file cannot be created.
+     * @throws IllegalArgumentException - if the table has more than MAX_TABLE_SLOTS slots, or a set has more than
+     *                                  MAX_CLAIM_SLOTS cards.
+     */
+    public GameJournal(Path path, Clock clock, Logger logger, Config config) throws IOException {
+        this(open(path, config), clock, logger);
+    }
+
+    GameJournal(FileChannel channel, Clock clock, Logger logger) {
+        this.channel = channel;
+        this.clock = clock;
+        this.logger = logger;
+        buffer = ByteBuffer.allocateDirect(RECORD_SIZE << 12);
+        startMillis = clock.currentTimeMillis();
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE).putLong(startMillis);
+        ring = new RingWriter<>(CAPACITY, Entry::new, new Output(), "journal-writer");
+    }
+
+    private static FileChannel open(Path path, Config config) throws IOException {
+        if (config != null && config.tableSize > MAX_TABLE_SLOTS)
+            throw new IllegalArgumentException("the journal cannot record the claims of a table with more than "
+                    + MAX_TABLE_SLOTS + " slots (" + config.tableSize + ")");
+        if (config != null && config.featureSize > MAX_CLAIM_SLOTS)
+            throw new IllegalArgumentException("the journal cannot record claims of more than " + MAX_CLAIM_SLOTS
+                    + " cards (" + config.featureSize + ")");
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * @return - a journal that records nothing.
+     */
+    public static GameJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return - true iff the events are recorded to a file (false after a write error).
+     */
+    public boolean isEnabled() {
+        return channel != null && !failed;
+    }
+
+    /**
+     * Wraps a user interface so that every call to it is also recorded to the journal.
+     *
+     * @param ui - the user interface to forward the calls to (may be null).
+     * @return - the recording user interface, or ui itself if the journal is disabled.
+     */
+    public UserInterface recording(UserInterface ui) {
+        return isEnabled() ? new Recorder(this, ui) : ui;
+    }
+
+    /**
+     * Records a set claimed by a player.
+     *
+     * @throws IllegalArgumentException - if the claim has more than MAX_CLAIM_SLOTS slots, or a slot of
+     *                                  MAX_TABLE_SLOTS or more (which a journal opened for the game rules out).
+     */
+    public void claimSubmitted(int player, int[] slots) {
+        if (!isEnabled()) return;
+        if (slots.length > MAX_CLAIM_SLOTS)
+            throw new IllegalArgumentException("a claim of " + slots.length + " slots does not fit a journal record");
+        long packed = 0;
+        for (int i = slots.length - 1; i >= 0; --i) {
+            if (slots[i] < 0 || slots[i] >= MAX_TABLE_SLOTS)
+                throw new IllegalArgumentException("slot " + slots[i] + " does not fit a journal record");
+            packed = packed << 8 | slots[i];
+        }
+        append(Type.ClaimSubmitted, player, slots.length, packed);
+    }
+
+    /**
+     * Records the result of checking a claimed set.
+     *
+     * @param verdict - the ordinal of the resulting Player.State.
+     */
+    public void claimVerdict(int player, int verdict) {
+        append(Type.ClaimVerdict, player, -1, verdict);
+    }
+
+    /**
+     * Records that the cards on the table were returned to the deck.
+     */
+    public void reshuffle() {
+        append(Type.Reshuffle, -1, -1, 0);
+    }
+
+    private void append(Type type, int player, int slot, long value) {
+        if (!isEnabled() || ring.isClosed()) return;
+        long sequence = ring.claim();
+        Entry entry = ring.entry(sequence);
+        entry.millis = clock.currentTimeMillis() - startMillis;
+        entry.type = type;
+        entry.player = player;
+        entry.slot = slot;
+        entry.value = value;
+        ring.publish(sequence);
+    }
+
+    /**
+     * Waits until every record that was appended before the call is written to the file.
+     */
+    public void flush() {
+        if (channel != null) ring.flush();
+    }
+
+    /**
+     * Writes all the records that are waiting, stops the writer thread and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null || ring.isClosed()) return;
+        ring.close();
+        channel.close();
+    }
+
+    /**
+     * Copies the entries to the buffer and writes it to the file, on the writer thread of the ring. A failure
+     * disables the journal.
+     */
+    private class Output implements RingWriter.Sink<Entry> {
+
+        private long lastMillis;
+
+        @Override
+        public void write(Entry entry) {
+            lastMillis = Math.max(lastMillis, entry.millis);
+            if (failed) return;
+            if (buffer.remaining() < RECORD_SIZE) drain();
+            buffer.putLong(lastMillis);
+            EventEncoder.encode(buffer, entry.type, entry.player, entry.slot, entry.value);
+        }
+
+        @Override
+        public void endOfBatch() {
+            if (!failed && buffer.position() > 0) drain();
+        }
+
+        @Override
+        public void close() {
+            // the file is closed by the journal once the writer is done
+        }
+
+        private void drain() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+            } catch (IOException e) {
+                failed = true;
+                logger.severe("error writing the game journal, no more events will be recorded: " + e);
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * A single journal record. Readers reuse one instance for all the records they read.
+     */
+    public static class Record {
+        public long millis;
+        public Type type;
+        public int player;
+        public int slot;
+        public long value;
+
+        /**
+         * @return - the slots of a ClaimSubmitted record.
+         */
+        public int[] claimSlots() {
+            int[] slots = new int[slot];
+            for (int i = 0; i < slots.length; ++i)
+                slots[i] = (int) (value >>> (8 * i) & 0xFF);
+            return slots;
+        }
+
+        @Override
+        public String toString() {
+            return millis + " " + type + " player=" + player + " slot=" + slot + " value=" + value;
+        }
+    }
+
+    /**
+     * Reads the records of a journal file in order.
+     */
+    public static class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final long startMillis;
+        private final Record record = new Record();
+
+        /**
+         * @param path - the journal file.
+         * @throws IOException - if the file cannot be read or is not a journal.
+         */
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer = ByteBuffer.allocateDirect(RECORD_SIZE << 12);
+            buffer.flip();
+            if (!fill(HEADER_SIZE) || buffer.getInt() != MAGIC || buffer.getShort() != VERSION
+                    || buffer.getShort() != RECORD_SIZE) {
+                channel.close();
+                throw new IOException("not a game journal: " + path);
+            }
+            startMillis = buffer.getLong();
+        }
+
+        /**
+         * @return - the time the game started, in millis since the epoch.
+         */
+        public long startMillis() {
+            return startMillis;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return - the record (the same instance on every call), or null at the end of the journal.
+         * @throws IOException - if the journal cannot be read, holds a record of an unknown type, or ends in the
+         *                     middle of a record.
+         */
+        public Record next() throws IOException {
+            if (!fill(RECORD_SIZE)) {
+                if (buffer.hasRemaining()) throw new EOFException("truncated journal record");
+                return null;
+            }
+            record.millis = buffer.getLong();
+            int type = buffer.getShort();
+            if (type < 0 || type >= Type.values.length) throw new IOException("corrupt journal record of type " + type);
+            record.type = Type.values[type];
+            record.player = buffer.getShort();
+            record.slot = buffer.getInt();
+            record.value = buffer.getLong();
+            return record;
+        }
+
+        /**
+         * Replays the journal into a user interface, in the order and with the arguments the game used.
+         *
+         * @param ui    - the user interface.
+         * @param paced - true to wait between the records as long as the game did, false to replay at once.
+         * @throws IOException          - if the journal cannot be read.
+         * @throws InterruptedException - if interrupted while waiting between records.
+         */
+        public void replay(UserInterface ui, boolean paced) throws IOException, InterruptedException {
+            long replayStart = System.currentTimeMillis();
+            int[] winners = new int[0];
+            for (Record r = next(); r != null; r = next()) {
+                if (r.type != Type.Winner && winners.length > 0) {
+                    ui.announceWinner(winners);
+                    winners = new int[0];
+                }
+                if (paced) {
+                    long delay = replayStart + r.millis - System.currentTimeMillis();
+                    if (delay > 0) Thread.sleep(delay);
+                }
+                switch (r.type) {
+                    case CardPlaced: ui.placeCard((int) r.value, r.slot); break;
+                    case CardRemoved: ui.removeCard(r.slot); break;
+                    case TokenPlaced: ui.placeToken(r.player, r.slot); break;
+                    case TokenRemoved: ui.removeToken(r.player, r.slot); break;
+                    case TokensRemoved:
+                        if (r.slot < 0) ui.removeTokens();
+                        else ui.removeTokens(r.slot);
+                        break;
+                    case Score: ui.setScore(r.player, (int) r.value); break;
+                    case Freeze: ui.setFreeze(r.player, r.value); break;
+                    case Countdown: ui.setCountdown(r.value, r.slot != 0); break;
+                    case Elapsed: ui.setElapsed(r.value); break;
+                    case Winner:
+                        winners = Arrays.copyOf(winners, winners.length + 1);
+                        winners[winners.length - 1] = r.player;
+                        break;
+                    default: // claims, verdicts and reshuffles have no display of their own
+                }
+            }
+            if (winners.length > 0) ui.announceWinner(winners);
+        }
+
+        /**
+         * Makes sure the buffer holds at least the given number of bytes, reading more from the file if needed.
+         *
+         * @return - false if the file ended first.
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return true;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Records the calls to a user interface and forwards them to it.
+     */
+    private static class Recorder extends EventEncoder {
+
+        private final GameJournal journal;
+
+        Recorder(GameJournal journal, UserInterface ui) {
+            super(ui);
+            this.journal = journal;
+        }
+
+        @Override
+        protected void event(Type type, int player, int slot, long value) {
+            journal.append(type, player, slot, value);
+        }
+
+        @Override
+        public void dispose() {
+            journal.flush();
+            super.dispose();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * A registry of the metrics of a game: counters (striped, so the players do not contend on them), gauges (read when
+ * the metrics are read) and latency histograms. The game threads report their events through the event methods,
+ * which do nothing when the metrics are disabled, and the metrics can be read in-process with snapshot or dumped to a
+ * file periodically, one line of name=value pairs per dump (the counters also get their rate per second since the
+ * previous dump).
+ */
+public class GameMetrics implements Closeable {
+
+    public static final String CLAIMS_SUBMITTED = "claims.submitted";
+    public static final String CLAIMS_ACCEPTED = "claims.accepted";
+    public static final String CLAIMS_REJECTED = "claims.rejected";
+    public static final String CLAIMS_UNCHECKED = "claims.unchecked";
+    public static final String CLAIMS_PENDING = "claims.pending";
+    public static final String VERIFICATION_NANOS = "claims.verificationNanos";
+    public static final String TOKEN_OPS = "tokens.ops";
+    public static final String RESHUFFLES = "reshuffles";
+    public static final String FROZEN_MILLIS = "players.frozenMillis";
+    public static final String TABLE_LOCK_NANOS = "table.lockHoldNanos";
+
+    private static final GameMetrics DISABLED = new GameMetrics(false);
+
+    private final boolean enabled;
+    private final Map<String, LongAdder> counters;
+    private final Map<String, LongSupplier> gauges;
+    private final Map<String, LatencyHistogram> histograms;
+
+    // the metrics of the game events (null if disabled)
+    private final LongAdder claimsSubmitted;
+    private final LongAdder claimsAccepted;
+    private final LongAdder claimsRejected;
+    private final LongAdder claimsUnchecked;
+    private final LongAdder tokenOps;
+    private final LongAdder reshuffles;
+    private final LongAdder frozenMillis;
+    private final LatencyHistogram verification;
+    private final LatencyHistogram tableLock;
+
+    private ScheduledExecutorService dumper;
+    private Writer out;
+    private Logger logger;
+    private final Map<String, Long> lastDump;
+    private long lastDumpNanos;
+
+    /**
+     * Creates enabled metrics, to be read in-process (and dumped to a file with dumpTo).
+     */
+    public GameMetrics() {
+        this(true);
+    }
+
+    private GameMetrics(boolean enabled) {
+        this.enabled = enabled;
+        counters = new ConcurrentHashMap<>();
+        gauges = new ConcurrentHashMap<>();
+        histograms = new ConcurrentHashMap<>();
+        lastDump = new TreeMap<>();
+        claimsSubmitted = enabled ? counter(CLAIMS_SUBMITTED) : null;
+        claimsAccepted = enabled ? counter(CLAIMS_ACCEPTED) : null;
+        claimsRejected = enabled ? counter(CLAIMS_REJECTED) : null;
+        claimsUnchecked = enabled ? counter(CLAIMS_UNCHECKED) : null;
+        tokenOps = enabled ? counter(TOKEN_OPS) : null;
+        reshuffles = enabled ? counter(RESHUFFLES) : null;
+        frozenMillis = enabled ? counter(FROZEN_MILLIS) : null;
+        verification = enabled ? histogram(VERIFICATION_NANOS) : null;
+        tableLock = enabled ? histogram(TABLE_LOCK_NANOS) : null;
+        if (enabled) gauge(CLAIMS_PENDING, () -> claimsSubmitted.sum() - claimsAccepted.sum() - claimsRejected.sum()
+                - claimsUnchecked.sum());
+    }
+
+    /**
+     * @return - metrics that record nothing.
+     */
+    public static GameMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return - true iff the metrics are recorded.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return - the counter of the given name (created if there is none, and not registered if the metrics are
+     * disabled).
+     */
+    public LongAdder counter(String name) {
+        if (!enabled) return new LongAdder();
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * @return - the histogram of the given name (created if there is none, and not registered if the metrics are
+     * disabled).
+     */
+    public LatencyHistogram histogram(String name) {
+        if (!enabled) return new LatencyHistogram();
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name. Ignored if the metrics are disabled.
+     *
+     * @param name  - the name of the gauge.
+     * @param value - reads the value of the gauge (on the thread that reads the metrics).
+     */
+    public void gauge(String name, LongSupplier value) {
+        if (enabled) gauges.put(name, value);
+    }
+
+    /**
+     * @return - the time to pass to the event methods that measure a latency (0 if the metrics are disabled, so the
+     * clock is not read).
+     */
+    public long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a set claimed by a player.
+     */
+    public void claimSubmitted() {
+        if (enabled) claimsSubmitted.increment();
+    }
+
+    /**
+     * Records the result of checking a claimed set.
+     *
+     * @param verdict        - the ordinal of the resulting Player.State (Free for a claim that was not checked).
+     * @param submittedNanos - the time the claim was submitted, from now().
+     */
+    public void claimVerdict(int verdict, long submittedNanos) {
+        if (!enabled) return;
+        verification.record(System.nanoTime() - submittedNanos);
+        if (verdict == Player.State.Point.ordinal()) claimsAccepted.increment();
+        else if (verdict == Player.State.Penalty.ordinal()) claimsRejected.increment();
+        else claimsUnchecked.increment();
+    }
+
+    /**
+     * Records a token placed on or removed from the table.
+     */
+    public void tokenOp() {
+        if (enabled) tokenOps.increment();
+    }
+
+    /**
+     * Records that the cards on the table were returned to the deck.
+     */
+    public void reshuffle() {
+        if (enabled) reshuffles.increment();
+    }
+
+    /**
+     * Records that a player was frozen.
+     *
+     * @param millis - the length of the freeze.
+     */
+    public void frozen(long millis) {
+        if (enabled) frozenMillis.add(millis);
+    }
+
+    /**
+     * Records that the dealer released the table lock.
+     *
+     * @param lockedNanos - the time the lock was taken, from now().
+     */
+    public void tableUnlocked(long lockedNanos) {
+        if (enabled) tableLock.record(System.nanoTime() - lockedNanos);
+    }
+
+    /**
+     * Reads all the metrics: the counters and the gauges by their names, and for every histogram its count, 50th,
+     * 99th and 99.9th percentiles and max (as name.count, name.p50 and so on).
+     *
+     * @return - the values of the metrics, sorted by name (empty if the metrics are disabled).
+     */
+    public SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            values.put(name + ".count", histogram.count());
+            values.put(name + ".p50", histogram.valueAtPercentile(50));
+            values.put(name + ".p99", histogram.valueAtPercentile(99));
+            values.put(name + ".p999", histogram.valueAtPercentile(99.9));
+            values.put(name + ".max", histogram.max());
+        });
+        return values;
+    }
+
+    /**
+     * Appends a line with the metrics to a file every interval, on a background thread, until closed or until the
+     * file cannot be written (which is logged). Does nothing if the metrics are disabled.
+     *
+     * @param path           - the file (created if needed).
+     * @param intervalMillis - the time between dumps, in milliseconds.
+     * @param logger         - the logger for the errors of writing the file.
+     * @throws IOException - if the file cannot be opened.
+     */
+    public void dumpTo(Path path, long intervalMillis, Logger logger) throws IOException {
+        if (!enabled) return;
+        dumpTo(Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                intervalMillis, logger);
+    }
+
+    synchronized void dumpTo(Writer out, long intervalMillis, Logger logger) throws IOException {
+        if (!enabled || dumper != null) {
+            out.close();
+            return;
+        }
+        this.out = out;
+        this.logger = logger;
+        lastDumpNanos = System.nanoTime();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dumper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, intervalMillis);
+        dumper.scheduleAtFixedRate(this::dump, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends a line with the metrics to the dump file, if there is one. If the line cannot be written, the error is
+     * logged, the file is closed and the dumps stop (an exception would only cancel the periodic dumps silently).
+     */
+    synchronized void dump() {
+        if (out == null) return;
+        try {
+            out.write(line());
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            logger.severe("error writing the metrics file, no more metrics will be dumped: " + e);
+            dumper.shutdown();
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+        }
+    }
+
+    private String line() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastDumpNanos) / 1e9;
+        StringBuilder line = new StringBuilder("time=").append(System.currentTimeMillis());
+        for (Map.Entry<String, Long> metric : snapshot().entrySet()) {
+            String name = metric.getKey();
+            long value = metric.getValue();
+            line.append(' ').append(name).append('=').append(value);
+            if (counters.containsKey(name)) {
+                Long last = lastDump.put(name, value);
+                line.append(' ').append(name).append(".rate=")
+                        .append(String.format(Locale.ROOT, "%.1f", (value - (last == null ? 0 : last)) / seconds));
+            }
+        }
+        lastDumpNanos = now;
+        return line.append(System.lineSeparator()).toString();
+    }
+
+    /**
+     * Stops the periodic dumps, after a last one.
+     *
+     * @throws IOException - if the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (dumper == null) return;
+        dumper.shutdownNow();
+        dump();
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, in the style of HdrHistogram: values below 2^SUB_BUCKET_BITS are counted
+ * exactly, and larger values fall into buckets of the same relative width (under 2%), so the percentiles are precise
+ * over the whole range of long values with a fixed, small footprint. Recording is lock-free and may be done by any
+ * number of threads; a histogram read while it is being recorded into gives a close but not necessarily consistent
+ * view. Threads that record a lot should have a histogram each and merge them with add.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS >> 1;
+    private static final int BUCKETS = Long.SIZE - SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(SUB_BUCKETS + BUCKETS * HALF);
+        total = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos - the latency in nanoseconds (negative values are recorded as 0).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        total.addAndGet(value);
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) seen = max.get();
+    }
+
+    /**
+     * Adds all the values recorded in another histogram to this one.
+     *
+     * @param other - the histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long count = other.counts.get(i);
+            if (count != 0) counts.addAndGet(i, count);
+        }
+        total.addAndGet(other.total.get());
+        long value = other.max.get();
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) seen = max.get();
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return - the number of recorded values.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * @return - the sum of the recorded values, in nanoseconds.
+     */
+    public long total() {
+        return total.get();
+    }
+
+    /**
+     * @return - the largest recorded value, in nanoseconds (0 if there are none).
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return - the mean of the recorded values, in nanoseconds (0 if there are none).
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) total.get() / count;
+    }
+
+    /**
+     * Returns the value below or at which a given percentage of the recorded values are. As in HdrHistogram, this is
+     * the highest value that falls into the same bucket as the value at the percentile (but never more than the max).
+     *
+     * @param percentile - the percentage, between 0 and 100.
+     * @return - the value at the percentile, in nanoseconds (0 if there are no values).
+     */
+    public long valueAtPercentile(double percentile) {
+        long count = count();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValueAt(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * @return - the count, the 50th, 99th and 99.9th percentiles and the max, in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus", count(),
+                valueAtPercentile(50) / 1e3, valueAtPercentile(99) / 1e3, valueAtPercentile(99.9) / 1e3, max() / 1e3);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
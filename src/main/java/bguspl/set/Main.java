@@ -6,6 +6,8 @@ import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -47,7 +49,7 @@ public class Main {
 
         Player[] players = new Player[config.players];
         UserInterface ui = null;
-        try {
+        if (!config.simulation) try {
             ui = new UserInterfaceSwing(logger, config, players);
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
@@ -57,7 +59,22 @@ public class Main {
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Clock clock = initClock(config);
+        GameJournal journal = initJournal(config, clock);
+        ui = journal.recording(ui);
+        NetworkServer server = initServer(config, players);
+        StatePublisher publisher = null;
+        if (server != null) {
+            publisher = new StatePublisher(config, ui, config.stateTickMillis);
+            server.watch(publisher);
+            ui = server.broadcasting(publisher);
+            new ThreadLogger(server, "network-server", logger).startWithLog();
+        }
+
+        GameMetrics metrics = initMetrics(config);
+        Scheduler scheduler = Scheduler.of(clock, () -> new TimerScheduler(clock, "freeze-timer"));
+        Scheduler aiScheduler = Scheduler.of(clock, () -> new TimerScheduler(clock, "ai-timer"));
+        Env env = new Env(logger, config, ui, util, journal, clock, scheduler, aiScheduler, metrics);
 
         // create the game entities
         Table table = new Table(env);
@@ -66,32 +83,83 @@ public class Main {
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger, config.virtualThreads);
         dealerThread.startWithLog();
 
         try {
             // shutdown stuff
             dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+            if (!xButtonPressed && config.endGamePauseMillies > 0) clock.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.severe("error closing the game journal: " + e.getMessage());
+            }
+            try {
+                metrics.close();
+            } catch (IOException e) {
+                logger.severe("error closing the metrics file: " + e.getMessage());
+            }
+            if (server != null) server.close();
+            if (publisher != null) publisher.close();
+            env.scheduler.shutdown();
+            env.aiScheduler.shutdown();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
-    private static Logger initLogger() {
+    private static Clock initClock(Config config) {
+        if (config.simulation) return new VirtualClock(System.currentTimeMillis());
+        if (config.clockSpeed > 0 && config.clockSpeed != 1) return new AcceleratedClock(config.clockSpeed);
+        return new SystemClock();
+    }
+
+    private static NetworkServer initServer(Config config, Player[] players) {
+        if (config.serverPort <= 0) return null;
+        try {
+            return new NetworkServer(logger, config, players, config.serverPort);
+        } catch (IOException e) {
+            logger.severe("error starting the network server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static GameJournal initJournal(Config config, Clock clock) {
+        if (config.journalFile.isEmpty()) return GameJournal.disabled();
+        try {
+            return new GameJournal(Paths.get(config.journalFile), clock, logger, config);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.severe("error creating the game journal: " + e.getMessage());
+            return GameJournal.disabled();
+        }
+    }
+
+    private static GameMetrics initMetrics(Config config) {
+        if (config.metricsFile.isEmpty()) return GameMetrics.disabled();
+        GameMetrics metrics = new GameMetrics();
+        try {
+            metrics.dumpTo(Paths.get(config.metricsFile), config.metricsIntervalMillis, logger);
+        } catch (IOException | InvalidPathException e) {
+            logger.severe("error opening the metrics file: " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        AsyncLogHandler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            handler = new AsyncLogHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
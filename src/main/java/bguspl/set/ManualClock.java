@@ -0,0 +1,121 @@
+package bguspl.set;
+
+import java.util.PriorityQueue;
+
+/**
+ * A clock that only moves when it is told to. Game time stands still until advanceTo or advanceBy is called, and
+ * the scheduled actions run on the advancing thread, in order, as the clock passes their time. Sleeping threads wake
+ * up once the clock reaches the end of their sleep. Useful for deterministic tests and timing measurements.
+ */
+public class ManualClock implements Clock, Scheduler {
+
+    /**
+     * How long a waiting thread parks before checking whether the clock was moved.
+     */
+    private static final long POLL_NANOS = 1_000_000L;
+
+    private static final class Task implements Comparable<Task> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+
+        Task(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (time != other.time) return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * @param start - the initial time of the clock, in milliseconds.
+     */
+    public ManualClock(long start) {
+        now = start;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Waits until another thread moves the clock past the end of the sleep.
+     */
+    @Override
+    public synchronized void sleep(long millis) throws InterruptedException {
+        long until = now + millis;
+        while (now < until) wait();
+    }
+
+    @Override
+    public long toNanos(long millis) {
+        return millis > 0 ? POLL_NANOS : 0;
+    }
+
+    /**
+     * Moves the clock forward to the given time, running the scheduled actions that become due on the way.
+     *
+     * @param time - the time to move to, in milliseconds (does nothing if the clock is already past it).
+     */
+    public void advanceTo(long time) {
+        while (true) {
+            Task task;
+            synchronized (this) {
+                task = tasks.peek();
+                if (task == null || task.time > time) {
+                    moveTo(time);
+                    return;
+                }
+                tasks.poll();
+                moveTo(task.time);
+            }
+            task.action.run();
+        }
+    }
+
+    /**
+     * Moves the clock forward by the given time, running the scheduled actions that become due on the way.
+     *
+     * @param millis - the time to move by, in milliseconds.
+     */
+    public void advanceBy(long millis) {
+        advanceTo(currentTimeMillis() + millis);
+    }
+
+    /**
+     * @return - the time of the earliest scheduled action, or Long.MAX_VALUE if there is none.
+     */
+    public synchronized long nextTaskTime() {
+        Task task = tasks.peek();
+        return task == null ? Long.MAX_VALUE : task.time;
+    }
+
+    @Override
+    public synchronized void schedule(Runnable action, long delayMillis) {
+        if (!shutdown) tasks.add(new Task(now + Math.max(0, delayMillis), sequence++, action));
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        tasks.clear();
+    }
+
+    private void moveTo(long time) {
+        if (time > now) {
+            now = time;
+            notifyAll();
+        }
+    }
+}
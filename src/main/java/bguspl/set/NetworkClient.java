@@ -0,0 +1,257 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A headless client of the NetworkServer that drives many connections from a single thread, for load generation.
+ * Each connection either plays for a human player (and may press keys), only listens to the events, or watches the
+ * state deltas. The client counts the events it receives by type, and the states it receives.
+ */
+public class NetworkClient implements Closeable {
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(NetworkServer.EVENT_SIZE << 10);
+        final ByteBuffer out = ByteBuffer.allocate(NetworkServer.REQUEST_SIZE << 6);
+        final boolean watcher;
+        SelectionKey key;
+
+        Connection(SocketChannel channel, boolean watcher) {
+            this.channel = channel;
+            this.watcher = watcher;
+        }
+    }
+
+    private final Selector selector;
+    private final List<Connection> connections;
+    private final long[] received;
+    private long states;
+    private StatePublisher.Delta lastState;
+    private long keysSent;
+    private long keysDropped;
+
+    public NetworkClient() throws IOException {
+        selector = Selector.open();
+        connections = new ArrayList<>();
+        received = new long[GameJournal.Type.values().length];
+    }
+
+    /**
+     * Opens a new connection to the server.
+     *
+     * @param address - the address of the server.
+     * @param player  - the id of the human player to play for, or -1 to only watch the game.
+     * @return - the index of the connection.
+     * @throws IOException - if the connection cannot be opened.
+     */
+    public int connect(InetSocketAddress address, int player) throws IOException {
+        Connection connection = open(address, false);
+        if (player >= 0) request(connection, NetworkServer.JOIN, player);
+        return connections.size() - 1;
+    }
+
+    /**
+     * Opens a new connection to the server that watches the state deltas of the game.
+     *
+     * @param address - the address of the server.
+     * @return - the index of the connection.
+     * @throws IOException - if the connection cannot be opened.
+     */
+    public int watch(InetSocketAddress address) throws IOException {
+        request(open(address, true), NetworkServer.WATCH, 0);
+        return connections.size() - 1;
+    }
+
+    private Connection open(InetSocketAddress address, boolean watcher) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel, watcher);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Queues a key press on a connection (sent by the next poll).
+     *
+     * @param connection - the index of the connection.
+     * @param slot       - the slot of the key.
+     */
+    public void pressKey(int connection, int slot) {
+        if (request(connections.get(connection), NetworkServer.KEY, slot)) ++keysSent;
+        else ++keysDropped;
+    }
+
+    /**
+     * Sends the queued requests and reads the events that arrived.
+     *
+     * @param timeoutMillis - the longest time to wait for something to happen (0 to not wait).
+     * @throws IOException - if the selector fails.
+     */
+    public void poll(long timeoutMillis) throws IOException {
+        if (timeoutMillis > 0) selector.select(timeoutMillis);
+        else selector.selectNow();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Connection connection = (Connection) key.attachment();
+            if (key.isValid() && key.isReadable()) read(connection);
+            if (key.isValid() && key.isWritable()) write(connection);
+        }
+    }
+
+    /**
+     * @return - the number of events of the given type received on all the connections.
+     */
+    public long received(GameJournal.Type type) {
+        return received[type.ordinal()];
+    }
+
+    /**
+     * @return - the number of events received on all the connections.
+     */
+    public long received() {
+        long total = 0;
+        for (long count : received) total += count;
+        return total;
+    }
+
+    /**
+     * @return - the number of states (snapshots and deltas) received on all the watching connections.
+     */
+    public long states() {
+        return states;
+    }
+
+    /**
+     * @return - the last state received (null if none was received yet).
+     */
+    public StatePublisher.Delta lastState() {
+        return lastState;
+    }
+
+    /**
+     * @return - the number of open connections.
+     */
+    public int connections() {
+        int open = 0;
+        for (Connection connection : connections)
+            if (connection.channel.isOpen()) ++open;
+        return open;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Connection connection : connections)
+            connection.channel.close();
+        selector.close();
+    }
+
+    private boolean request(Connection connection, byte type, int argument) {
+        if (!connection.channel.isOpen() || connection.out.remaining() < NetworkServer.REQUEST_SIZE) return false;
+        connection.out.put(type).put((byte) 0).putShort((short) argument);
+        connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return true;
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        int read;
+        try {
+            read = connection.channel.read(in);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            connection.channel.close();
+            return;
+        }
+        in.flip();
+        if (connection.watcher) {
+            while (in.remaining() >= 4 && in.remaining() >= 4 + in.getInt(in.position())) {
+                int length = in.getInt();
+                ByteBuffer state = in.slice();
+                state.limit(length);
+                lastState = StatePublisher.Delta.decode(state);
+                in.position(in.position() + length);
+                ++states;
+            }
+        }
+        else {
+            while (in.remaining() >= NetworkServer.EVENT_SIZE) {
+                int type = in.getShort();
+                in.position(in.position() + NetworkServer.EVENT_SIZE - 2);
+                if (type >= 0 && type < received.length) ++received[type];
+            }
+        }
+        in.compact();
+    }
+
+    private void write(Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            connection.channel.close();
+            return;
+        } finally {
+            out.compact();
+        }
+        if (out.position() == 0) connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Connects to a running game and generates load: the first connections play for the human players and press
+     * random keys at a fixed total rate, the rest watch the state deltas.
+     *
+     * @param args - host, port, number of players, number of watchers, key presses per second, seconds to run,
+     *             number of slots on the table (default: localhost 7777 2 0 100 10 12).
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int watchers = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int keysPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        int seconds = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+        int slots = args.length > 6 ? Integer.parseInt(args[6]) : 12;
+
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        Random random = new Random();
+        try (NetworkClient client = new NetworkClient()) {
+            for (int i = 0; i < players; i++)
+                client.connect(address, i);
+            for (int i = 0; i < watchers; i++)
+                client.watch(address);
+
+            long start = System.nanoTime();
+            long end = start + seconds * 1_000_000_000L;
+            long pressed = 0;
+            for (long now = start; now < end && client.connections() > 0; now = System.nanoTime()) {
+                long due = (now - start) * keysPerSecond / 1_000_000_000L;
+                for (; pressed < due && players > 0; pressed++)
+                    client.pressKey((int) (pressed % players), random.nextInt(slots));
+                client.poll(1);
+            }
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d connections open, %d keys sent (%d dropped), %d events received (%.0f/s), "
+                            + "%d states received (%.0f/s)%n",
+                    client.connections(), client.keysSent, client.keysDropped, client.received(),
+                    client.received() / elapsed, client.states, client.states / elapsed);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * A non-blocking TCP front-end for remote human players. A single selector thread accepts the connections, turns
+ * their requests into key presses of the players, and streams the changes of the table to all of them.
+ * <p>
+ * Requests are 4 bytes: (type: byte, unused: byte, argument: short). A connection first sends JOIN with the id of
+ * a human player it plays for, and then KEY with a slot for every key press.
+ * Events are 16 bytes: (type: short, player: short, slot: int, value: long), encoded by EventEncoder, where the type
+ * is the ordinal of a GameJournal.Type and the fields mean the same as in the journal records. The game threads only
+ * fill an entry of a RingWriter; its writer thread encodes every event once into a batch that the selector thread
+ * copies to all the connections.
+ * <p>
+ * A connection that sends WATCH instead gets the state of the game from a StatePublisher: a snapshot, followed by
+ * a delta of every tick, each one prefixed by its length (int) and encoded by StatePublisher.Delta.encode.
+ */
+public class NetworkServer implements Runnable, Closeable {
+
+    public static final byte JOIN = 1;
+    public static final byte KEY = 2;
+    public static final byte WATCH = 3;
+    public static final int REQUEST_SIZE = 4;
+    public static final int EVENT_SIZE = EventEncoder.EVENT_SIZE;
+
+    /**
+     * The most events waiting to be sent to a single connection. A client that falls further behind is dropped.
+     */
+    private static final int BACKLOG_EVENTS = 1 << 10;
+
+    /**
+     * The number of entries in the ring of events (a power of 2).
+     */
+    private static final int RING_CAPACITY = 1 << 12;
+
+    /**
+     * An event waiting to be encoded.
+     */
+    private static final class Event {
+        GameJournal.Type type;
+        int player;
+        int slot;
+        long value;
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(REQUEST_SIZE << 4);
+        final ByteBuffer out = ByteBuffer.allocate(EVENT_SIZE * BACKLOG_EVENTS);
+        int player = -1;
+        boolean watcher;
+        long since; // the sequence of the snapshot sent to a watcher
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+
+    /**
+     * The connection of each human player (null if it has none).
+     */
+    private final Connection[] playerConnections;
+
+    /**
+     * The events of the game threads, encoded by the writer thread of the ring into the outbox.
+     */
+    private final RingWriter<Event> events;
+
+    /**
+     * Encoded events waiting for the selector thread to send them (guarded by outboxLock). The selector thread swaps
+     * it with its batch, which it copies to the connections.
+     */
+    private final Object outboxLock;
+    private ByteBuffer outbox;
+    private boolean outboxOverflowed;
+    private ByteBuffer batch;
+
+    /**
+     * Encoded and length-prefixed states waiting for the selector thread to send them to the watchers.
+     */
+    private final ConcurrentLinkedQueue<byte[]> states;
+    private final List<byte[]> stateBatch;
+    private StatePublisher publisher;
+    private final AtomicBoolean wakeupPending;
+    private volatile boolean closed;
+    private volatile int connections;
+
+    /**
+     * Opens the server socket. The server does not accept connections until it runs.
+     *
+     * @param logger  - the logger.
+     * @param config  - the game configuration.
+     * @param players - the players of the game (may still be filled in after the server is created).
+     * @param port    - the port to listen on (0 for any free port).
+     * @throws IOException - if the socket cannot be opened.
+     */
+    public NetworkServer(Logger logger, Config config, Player[] players, int port) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+        playerConnections = new Connection[config.humanPlayers];
+        outboxLock = new Object();
+        outbox = ByteBuffer.allocate(EVENT_SIZE * BACKLOG_EVENTS);
+        batch = ByteBuffer.allocate(EVENT_SIZE * BACKLOG_EVENTS);
+        states = new ConcurrentLinkedQueue<>();
+        stateBatch = new ArrayList<>();
+        wakeupPending = new AtomicBoolean(false);
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        events = new RingWriter<>(RING_CAPACITY, Event::new, new Encoder(), "network-encoder");
+    }
+
+    /**
+     * @return - the port the server listens on.
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of open connections.
+     */
+    public int connections() {
+        return connections;
+    }
+
+    /**
+     * Wraps a user interface so that every change it shows is also sent to the connected clients.
+     *
+     * @param ui - the user interface to forward the calls to (may be null).
+     * @return - the broadcasting user interface.
+     */
+    public UserInterface broadcasting(UserInterface ui) {
+        return new Broadcaster(this, ui);
+    }
+
+    /**
+     * Serves the states of a publisher to the connections that watch the game. Must be called before the server runs.
+     *
+     * @param publisher - the state publisher.
+     */
+    public void watch(StatePublisher publisher) {
+        this.publisher = publisher;
+        publisher.subscribe(delta -> {
+            // the snapshot is sent to every watcher when it joins
+            if (!delta.snapshot) enqueue(states, frame(delta));
+        });
+    }
+
+    private static byte[] frame(StatePublisher.Delta delta) {
+        byte[] encoded = delta.encode();
+        return ByteBuffer.allocate(4 + encoded.length).putInt(encoded.length).put(encoded).array();
+    }
+
+    /**
+     * The selector thread starts here.
+     */
+    @Override
+    public void run() {
+        logger.info("thread " + Thread.currentThread().getName() + " starting.");
+        logger.info("listening for players on port " + port());
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                sendEvents();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) read(key, connection);
+                        if (key.isValid() && key.isWritable()) write(key, connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("network server failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {}
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+        logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Stops the server. The selector thread closes all the connections on its way out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        events.close();
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+            ++connections;
+        }
+    }
+
+    private void read(SelectionKey key, Connection connection) {
+        try {
+            if (connection.channel.read(connection.in) < 0) {
+                disconnect(key, connection, null);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(key, connection, e.getMessage());
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= REQUEST_SIZE && key.isValid()) {
+            byte type = in.get();
+            in.get();
+            handle(key, connection, type, in.getShort());
+        }
+        in.compact();
+    }
+
+    private void handle(SelectionKey key, Connection connection, byte type, int argument) {
+        if (type == JOIN) {
+            if (connection.player >= 0 || argument < 0 || argument >= playerConnections.length
+                    || playerConnections[argument] != null) {
+                disconnect(key, connection, "invalid join as player " + argument);
+                return;
+            }
+            connection.player = argument;
+            playerConnections[argument] = connection;
+            logger.info("player " + (argument + 1) + " joined from " + connection.channel.socket().getRemoteSocketAddress());
+        }
+        else if (type == KEY) {
+            if (connection.player < 0 || argument < 0 || argument >= config.tableSize) {
+                disconnect(key, connection, "invalid key press of slot " + argument);
+                return;
+            }
+            Player player = players[connection.player];
+            if (player != null) player.keyPressed(argument);
+        }
+        else if (type == WATCH) {
+            if (connection.player >= 0 || connection.watcher || publisher == null) {
+                disconnect(key, connection, "invalid watch request");
+                return;
+            }
+            byte[] snapshot = frame(publisher.snapshot());
+            if (connection.out.remaining() < snapshot.length) {
+                disconnect(key, connection, "the snapshot does not fit the buffer");
+                return;
+            }
+            connection.watcher = true;
+            connection.since = ByteBuffer.wrap(snapshot).getLong(4);
+            connection.out.put(snapshot);
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+        else {
+            disconnect(key, connection, "unknown request " + type);
+        }
+    }
+
+    private void write(SelectionKey key, Connection connection) {
+        ByteBuffer out = connection.out;
+        out.flip();
+        try {
+            connection.channel.write(out);
+        } catch (IOException e) {
+            disconnect(key, connection, e.getMessage());
+            return;
+        } finally {
+            out.compact();
+        }
+        if (out.position() == 0) key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Copies the waiting events to the outgoing buffer of every connection, and the waiting states to the outgoing
+     * buffer of every watcher.
+     */
+    private void sendEvents() {
+        boolean overflowed;
+        synchronized (outboxLock) {
+            ByteBuffer full = outbox;
+            outbox = batch;
+            batch = full;
+            overflowed = outboxOverflowed;
+            outboxOverflowed = false;
+        }
+        batch.flip();
+        for (byte[] state = states.poll(); state != null; state = states.poll())
+            stateBatch.add(state);
+        if (!batch.hasRemaining() && !overflowed && stateBatch.isEmpty()) {
+            batch.clear();
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid() || !(key.attachment() instanceof Connection)) continue;
+            Connection connection = (Connection) key.attachment();
+            ByteBuffer out = connection.out;
+            if (connection.watcher) {
+                for (byte[] state : stateBatch) {
+                    // skip the states that were queued before the snapshot of the watcher was taken
+                    if (ByteBuffer.wrap(state).getLong(4) <= connection.since) continue;
+                    if (out.remaining() < state.length) {
+                        disconnect(key, connection, "too slow to receive the states");
+                        break;
+                    }
+                    out.put(state);
+                }
+            }
+            else if (overflowed || out.remaining() < batch.remaining()) {
+                disconnect(key, connection, "too slow to receive the events");
+            }
+            else {
+                out.put(batch.duplicate());
+            }
+            if (key.isValid() && out.position() > 0)
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+        batch.clear();
+        stateBatch.clear();
+    }
+
+    private void disconnect(SelectionKey key, Connection connection, String reason) {
+        if (reason != null) logger.warning("dropping connection of player " + (connection.player + 1) + ": " + reason);
+        if (connection.player >= 0 && playerConnections[connection.player] == connection)
+            playerConnections[connection.player] = null;
+        // counted out before the client can see the connection close
+        --connections;
+        key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Queues an event for all the connections. Called by the game threads.
+     */
+    private void publish(GameJournal.Type type, int player, int slot, long value) {
+        if (closed) return;
+        long sequence = events.claim();
+        Event event = events.entry(sequence);
+        event.type = type;
+        event.player = player;
+        event.slot = slot;
+        event.value = value;
+        events.publish(sequence);
+    }
+
+    private void enqueue(ConcurrentLinkedQueue<byte[]> queue, byte[] message) {
+        if (closed) return;
+        queue.offer(message);
+        wakeSelector();
+    }
+
+    private void wakeSelector() {
+        if (!wakeupPending.get() && !wakeupPending.getAndSet(true)) selector.wakeup();
+    }
+
+    /**
+     * Encodes the events into the outbox, on the writer thread of the ring. If the selector thread falls so far
+     * behind that the outbox is full, the events are dropped, and so are the connections that miss them.
+     */
+    private class Encoder implements RingWriter.Sink<Event> {
+
+        private final ByteBuffer encoded = ByteBuffer.allocate(EVENT_SIZE << 8);
+
+        @Override
+        public void write(Event event) {
+            if (encoded.remaining() < EVENT_SIZE) endOfBatch();
+            EventEncoder.encode(encoded, event.type, event.player, event.slot, event.value);
+        }
+
+        @Override
+        public void endOfBatch() {
+            if (encoded.position() == 0) return;
+            encoded.flip();
+            synchronized (outboxLock) {
+                if (outbox.remaining() >= encoded.remaining()) outbox.put(encoded);
+                else outboxOverflowed = true;
+            }
+            encoded.clear();
+            wakeSelector();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Sends the calls to a user interface to the clients and forwards them to it.
+     */
+    private static class Broadcaster extends EventEncoder {
+
+        private final NetworkServer server;
+
+        Broadcaster(NetworkServer server, UserInterface ui) {
+            super(ui);
+            this.server = server;
+        }
+
+        @Override
+        protected void event(GameJournal.Type type, int player, int slot, long value) {
+            server.publish(type, player, slot, value);
+        }
+    }
+}
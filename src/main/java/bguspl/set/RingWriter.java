@@ -0,0 +1,191 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free ring of preallocated entries, filled by any number of threads and consumed by a single writer thread.
+ * A producer claims a sequence number, fills the entry of that sequence and publishes it; the writer hands the
+ * published entries to a Sink in sequence order, and when nothing more is pending it lets the sink flush the batch
+ * and sleeps until woken up. A producer only waits if the writer falls a whole ring behind.
+ *
+ * @param <E> - the type of the entries.
+ */
+public final class RingWriter<E> {
+
+    /**
+     * Consumes the entries of the ring. All its methods run on the writer thread.
+     */
+    public interface Sink<E> {
+
+        /**
+         * Consumes an entry. The entry is reused as soon as this returns.
+         */
+        void write(E entry);
+
+        /**
+         * Called when there is nothing more to write at the moment, to flush what was written.
+         */
+        void endOfBatch();
+
+        /**
+         * Called once after the last entry was written and flushed, to release the output.
+         */
+        void close();
+    }
+
+    /**
+     * The longest time the writer sleeps before checking the ring again.
+     */
+    private static final long IDLE_NANOS = 100_000_000L;
+
+    /**
+     * A slot of the ring.
+     */
+    private static final class Slot<E> {
+        volatile long sequence = -1; // the sequence number of the entry that was last published to this slot
+        final E entry;
+
+        Slot(E entry) {
+            this.entry = entry;
+        }
+    }
+
+    private final Slot<E>[] ring;
+    private final int mask;
+    private final Sink<E> sink;
+
+    /**
+     * The next sequence number to be claimed by a producer.
+     */
+    private final AtomicLong claimed;
+
+    /**
+     * The next sequence number to be written by the writer (all entries before it may be reused).
+     */
+    private volatile long consumed;
+
+    /**
+     * All the entries before this sequence number were written and flushed.
+     */
+    private volatile long flushed;
+
+    private final Thread writerThread;
+    private final AtomicBoolean writerParked;
+    private volatile boolean closed;
+
+    /**
+     * Creates the ring and starts its writer thread.
+     *
+     * @param capacity - the number of entries in the ring (a power of 2).
+     * @param entries  - creates the entries of the ring.
+     * @param sink     - consumes the published entries.
+     * @param name     - the name of the writer thread.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RingWriter(int capacity, Supplier<E> entries, Sink<E> sink, String name) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of 2");
+        ring = new Slot[capacity];
+        for (int i = 0; i < capacity; ++i)
+            ring[i] = new Slot<>(entries.get());
+        mask = capacity - 1;
+        this.sink = sink;
+        claimed = new AtomicLong();
+        writerParked = new AtomicBoolean(false);
+        writerThread = new Thread(this::writeLoop, name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * @return - true iff the ring was closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Claims the next sequence number, waiting for the writer if its entry of the ring is still in use. The caller
+     * must fill the entry and publish it.
+     *
+     * @return - the claimed sequence number.
+     */
+    public long claim() {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= ring.length) {
+            wakeWriter();
+            LockSupport.parkNanos(this, 10_000L);
+        }
+        return sequence;
+    }
+
+    /**
+     * @param sequence - a claimed sequence number.
+     * @return - the entry of the sequence number.
+     */
+    public E entry(long sequence) {
+        return ring[(int) sequence & mask].entry;
+    }
+
+    /**
+     * Makes a filled entry visible to the writer.
+     *
+     * @param sequence - the claimed sequence number of the entry.
+     */
+    public void publish(long sequence) {
+        ring[(int) sequence & mask].sequence = sequence;
+        wakeWriter();
+    }
+
+    /**
+     * Waits until every entry that was claimed before the call is written and flushed.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (flushed < target && writerThread.isAlive()) {
+            wakeWriter();
+            LockSupport.parkNanos(this, 1_000_000L);
+        }
+    }
+
+    /**
+     * Writes all the entries that are waiting, then stops the writer thread, which closes the sink.
+     */
+    public void close() {
+        flush();
+        closed = true;
+        wakeWriter();
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeWriter() {
+        if (writerParked.get() && writerParked.getAndSet(false)) LockSupport.unpark(writerThread);
+    }
+
+    private void writeLoop() {
+        long next = 0;
+        while (true) {
+            Slot<E> slot = ring[(int) next & mask];
+            if (slot.sequence == next) {
+                sink.write(slot.entry);
+                consumed = ++next;
+                continue;
+            }
+
+            // nothing more to write at the moment: flush the batch and sleep
+            sink.endOfBatch();
+            flushed = next;
+            if (closed && next == claimed.get()) break;
+            writerParked.set(true);
+            if (slot.sequence != next) LockSupport.parkNanos(this, IDLE_NANOS);
+            writerParked.set(false);
+        }
+        sink.close();
+    }
+}
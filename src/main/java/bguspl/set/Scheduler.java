@@ -0,0 +1,34 @@
+package bguspl.set;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs actions after a delay of game time, on a thread of its own choosing.
+ */
+public interface Scheduler {
+
+    /**
+     * Runs an action after a delay.
+     *
+     * @param action      - the action to run.
+     * @param delayMillis - the delay, in milliseconds of game time.
+     */
+    void schedule(Runnable action, long delayMillis);
+
+    /**
+     * Drops all the pending actions and stops accepting new ones.
+     */
+    void shutdown();
+
+    /**
+     * Picks the scheduler of a game: the clock itself if it runs the actions when it is advanced (as the simulated
+     * clocks do), or else a timer of real time.
+     *
+     * @param clock - the clock of the game.
+     * @param timer - gives the timer to use if the clock is not a scheduler (only called then).
+     * @return - the scheduler.
+     */
+    static Scheduler of(Clock clock, Supplier<? extends Scheduler> timer) {
+        return clock instanceof Scheduler ? (Scheduler) clock : timer.get();
+    }
+}
@@ -0,0 +1,400 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps a model of what the user interface shows and publishes its changes to any number of subscribers. The game
+ * threads only update the model and mark what changed, with atomic operations and no lock; a publisher thread turns
+ * all the changes of a tick into a single delta (the changed slots with their card and token mask, the changed
+ * players with their score and freeze, the countdown and the winners) and hands it to every subscriber. A tick in
+ * which nothing changed publishes nothing. A new subscriber first gets a snapshot of the
+ * whole state, and then only the deltas that come after it.
+ * <p>
+ * Deltas hold the new values rather than the differences, so applying a delta twice is harmless. Token masks hold a
+ * bit per player, so only the first 64 players are shown.
+ */
+public class StatePublisher implements UserInterface {
+
+    /**
+     * Receives the published states, on the publisher thread.
+     */
+    public interface Subscriber {
+        void onState(Delta delta);
+    }
+
+    /**
+     * The changes of one tick, or the whole state for a snapshot.
+     */
+    public static final class Delta {
+
+        private static final byte SNAPSHOT = 1, COUNTDOWN = 2, WARN = 4, WINNERS = 8;
+
+        public final long sequence;
+        public final boolean snapshot;
+        public final BitSet slots;
+        public final int[] cards;   // by slot, -1 for an empty slot (only the changed slots are meaningful)
+        public final long[] tokens; // by slot (only the changed slots are meaningful)
+        public final BitSet players;
+        public final int[] scores;  // by player (only the changed players are meaningful)
+        public final long[] freezes; // by player (only the changed players are meaningful)
+        public final boolean countdownChanged;
+        public final long countdown;
+        public final boolean warn;
+        public final int[] winners; // null if there are none yet
+
+        Delta(long sequence, boolean snapshot, BitSet slots, int[] cards, long[] tokens, BitSet players, int[] scores,
+              long[] freezes, boolean countdownChanged, long countdown, boolean warn, int[] winners) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+            this.slots = slots;
+            this.cards = cards;
+            this.tokens = tokens;
+            this.players = players;
+            this.scores = scores;
+            this.freezes = freezes;
+            this.countdownChanged = countdownChanged;
+            this.countdown = countdown;
+            this.warn = warn;
+            this.winners = winners;
+        }
+
+        /**
+         * Encodes the delta: sequence, flags, countdown (if changed), then for slots and for players the number of
+         * bitset words, the words, and the values of every set bit; then the winners (if any).
+         *
+         * @return - the encoded delta.
+         */
+        public byte[] encode() {
+            long[] slotWords = slots.toLongArray(), playerWords = players.toLongArray();
+            int size = 8 + 1 + (countdownChanged ? 8 : 0)
+                    + 2 + slotWords.length * 8 + slots.cardinality() * 12
+                    + 2 + playerWords.length * 8 + players.cardinality() * 12
+                    + (winners != null ? 2 + winners.length * 2 : 0);
+            ByteBuffer out = ByteBuffer.allocate(size);
+            byte flags = (byte) ((snapshot ? SNAPSHOT : 0) | (countdownChanged ? COUNTDOWN : 0) | (warn ? WARN : 0)
+                    | (winners != null ? WINNERS : 0));
+            out.putLong(sequence).put(flags);
+            if (countdownChanged) out.putLong(countdown);
+            out.putShort((short) slotWords.length);
+            for (long word : slotWords) out.putLong(word);
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1))
+                out.putInt(cards[slot]).putLong(tokens[slot]);
+            out.putShort((short) playerWords.length);
+            for (long word : playerWords) out.putLong(word);
+            for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1))
+                out.putInt(scores[player]).putLong(freezes[player]);
+            if (winners != null) {
+                out.putShort((short) winners.length);
+                for (int winner : winners) out.putShort((short) winner);
+            }
+            return out.array();
+        }
+
+        /**
+         * Decodes a delta encoded by encode().
+         *
+         * @param in - the encoded delta (exactly).
+         * @return - the delta.
+         */
+        public static Delta decode(ByteBuffer in) {
+            long sequence = in.getLong();
+            byte flags = in.get();
+            long countdown = (flags & COUNTDOWN) != 0 ? in.getLong() : 0;
+            long[] slotWords = new long[in.getShort()];
+            for (int i = 0; i < slotWords.length; i++) slotWords[i] = in.getLong();
+            BitSet slots = BitSet.valueOf(slotWords);
+            int[] cards = new int[slotWords.length * 64];
+            long[] tokens = new long[cards.length];
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                cards[slot] = in.getInt();
+                tokens[slot] = in.getLong();
+            }
+            long[] playerWords = new long[in.getShort()];
+            for (int i = 0; i < playerWords.length; i++) playerWords[i] = in.getLong();
+            BitSet players = BitSet.valueOf(playerWords);
+            int[] scores = new int[playerWords.length * 64];
+            long[] freezes = new long[scores.length];
+            for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1)) {
+                scores[player] = in.getInt();
+                freezes[player] = in.getLong();
+            }
+            int[] winners = null;
+            if ((flags & WINNERS) != 0) {
+                winners = new int[in.getShort()];
+                for (int i = 0; i < winners.length; i++) winners[i] = in.getShort();
+            }
+            return new Delta(sequence, (flags & SNAPSHOT) != 0, slots, cards, tokens, players, scores, freezes,
+                    (flags & COUNTDOWN) != 0, countdown, (flags & WARN) != 0, winners);
+        }
+    }
+
+    /**
+     * A subscriber, with the sequence of the snapshot it got (it skips the deltas up to it).
+     */
+    private static final class Subscription {
+        final Subscriber subscriber;
+        final long since;
+
+        Subscription(Subscriber subscriber, long since) {
+            this.subscriber = subscriber;
+            this.since = since;
+        }
+    }
+
+    private final UserInterface ui;
+    private final List<Subscription> subscribers;
+    private final ScheduledExecutorService ticker;
+
+    // the model of the shown state, updated by the game threads without locking
+    private final AtomicIntegerArray cards;
+    private final AtomicLongArray tokens;
+    private final AtomicIntegerArray scores;
+    private final AtomicLongArray freezes;
+    private volatile long countdown; // the millis times 2, plus 1 if warning
+    private volatile int[] winners;
+
+    // what changed since the last tick: a bit per slot and per player, set by the game threads after the change
+    private final AtomicLongArray dirtySlots;
+    private final AtomicLongArray dirtyPlayers;
+    private final AtomicBoolean countdownDirty;
+    private final AtomicBoolean winnersDirty;
+
+    private long sequence; // guarded by this, which only the publisher and new subscribers take
+
+    /**
+     * @param config     - the game configuration.
+     * @param ui         - the user interface to forward the calls to (may be null).
+     * @param tickMillis - the time between published deltas, in milliseconds.
+     */
+    public StatePublisher(Config config, UserInterface ui, long tickMillis) {
+        this.ui = ui;
+        subscribers = new CopyOnWriteArrayList<>();
+        cards = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; slot++)
+            cards.set(slot, -1);
+        tokens = new AtomicLongArray(config.tableSize);
+        scores = new AtomicIntegerArray(config.players);
+        freezes = new AtomicLongArray(config.players);
+        dirtySlots = new AtomicLongArray(words(config.tableSize));
+        dirtyPlayers = new AtomicLongArray(words(config.players));
+        countdownDirty = new AtomicBoolean(false);
+        winnersDirty = new AtomicBoolean(false);
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "state-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::publish, tickMillis, Math.max(1, tickMillis), TimeUnit.MILLISECONDS);
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Adds a subscriber. It gets a snapshot of the current state right away, and the deltas from the next tick on.
+     * The snapshot and the registration are atomic with the ticks, so no change is missed (a change that is in the
+     * snapshot may come again in the next delta, which is harmless).
+     */
+    public synchronized void subscribe(Subscriber subscriber) {
+        Delta snapshot = snapshot();
+        subscriber.onState(snapshot);
+        subscribers.add(new Subscription(subscriber, snapshot.sequence));
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.removeIf(subscription -> subscription.subscriber == subscriber);
+    }
+
+    /**
+     * @return - the whole current state.
+     */
+    public synchronized Delta snapshot() {
+        BitSet slots = new BitSet(cards.length());
+        slots.set(0, cards.length());
+        BitSet players = new BitSet(scores.length());
+        players.set(0, scores.length());
+        return build(true, slots, players, true, winners);
+    }
+
+    /**
+     * Publishes the changes since the last tick, if there are any. Runs on the publisher thread.
+     */
+    void publish() {
+        Delta delta;
+        synchronized (this) {
+            BitSet slots = take(dirtySlots);
+            BitSet players = take(dirtyPlayers);
+            boolean countdownChanged = countdownDirty.getAndSet(false);
+            boolean winnersChanged = winnersDirty.getAndSet(false);
+            if (slots == null && players == null && !countdownChanged && !winnersChanged) return;
+            ++sequence;
+            delta = build(false, slots != null ? slots : new BitSet(), players != null ? players : new BitSet(),
+                    countdownChanged, winnersChanged ? winners : null);
+        }
+        // a subscriber that joined after the delta was made already has its changes in its snapshot
+        for (Subscription subscription : subscribers)
+            if (delta.sequence > subscription.since) subscription.subscriber.onState(delta);
+    }
+
+    /**
+     * Clears a dirty mask.
+     *
+     * @return - the bits that were set, or null if none was.
+     */
+    private static BitSet take(AtomicLongArray dirty) {
+        long[] words = null;
+        for (int i = 0; i < dirty.length(); i++) {
+            if (dirty.get(i) == 0) continue;
+            if (words == null) words = new long[dirty.length()];
+            words[i] = dirty.getAndSet(i, 0);
+        }
+        return words != null ? BitSet.valueOf(words) : null;
+    }
+
+    /**
+     * Reads the current values of the given slots and players. The values are read after their dirty bits were
+     * cleared, so a change made meanwhile is either in this delta or marks the next one.
+     */
+    private Delta build(boolean snapshot, BitSet slots, BitSet players, boolean countdownChanged, int[] winners) {
+        int[] cards = new int[this.cards.length()];
+        long[] tokens = new long[cards.length];
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            cards[slot] = this.cards.get(slot);
+            tokens[slot] = this.tokens.get(slot);
+        }
+        int[] scores = new int[this.scores.length()];
+        long[] freezes = new long[scores.length];
+        for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1)) {
+            scores[player] = this.scores.get(player);
+            freezes[player] = this.freezes.get(player);
+        }
+        long countdown = this.countdown;
+        return new Delta(sequence, snapshot, slots, cards, tokens, players, scores, freezes,
+                countdownChanged, countdown >> 1, (countdown & 1) != 0, winners);
+    }
+
+    /**
+     * Stops publishing.
+     */
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private static void mark(AtomicLongArray dirty, int bit) {
+        long mask = 1L << bit;
+        if ((dirty.get(bit >>> 6) & mask) == 0) dirty.getAndAccumulate(bit >>> 6, mask, (word, set) -> word | set);
+    }
+
+    private void setCard(int slot, int card) {
+        cards.set(slot, card);
+        mark(dirtySlots, slot);
+    }
+
+    private void setToken(int player, int slot, boolean placed) {
+        if (player >= Long.SIZE) return;
+        long mask = 1L << player;
+        if (placed) tokens.getAndAccumulate(slot, mask, (word, set) -> word | set);
+        else tokens.getAndAccumulate(slot, ~mask, (word, kept) -> word & kept);
+        mark(dirtySlots, slot);
+    }
+
+    private void clearTokens(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            if (tokens.get(slot) != 0) {
+                tokens.set(slot, 0);
+                mark(dirtySlots, slot);
+            }
+        }
+    }
+
+    private void updateCountdown(long millies, boolean warn) {
+        countdown = millies << 1 | (warn ? 1 : 0);
+        countdownDirty.set(true);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        setCard(slot, card);
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        setCard(slot, -1);
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        setToken(player, slot, true);
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        clearTokens(0, tokens.length());
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        clearTokens(slot, slot + 1);
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        setToken(player, slot, false);
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        updateCountdown(millies, warn);
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        updateCountdown(millies, false);
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+        mark(dirtyPlayers, player);
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        mark(dirtyPlayers, player);
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+        winnersDirty.set(true);
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        publish();
+        close();
+        if (ui != null) ui.dispose();
+    }
+}
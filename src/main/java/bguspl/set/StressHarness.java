@@ -0,0 +1,345 @@
+package bguspl.set;
+
+import bguspl.set.ex.CardSet;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Measures how the Table and the Dealer behave under contention. A thread per player hammers one table with token
+ * placements and removals on random slots, as fast as it can, and submits a claim to the dealer whenever it has a full
+ * set of tokens (then waits for the verdict, as a player does). The players are never frozen, and the games are
+ * played back to back until the time is up. Every operation is timed into a LatencyHistogram:
+ * <ul>
+ * <li>token operations, and among them the ones that found the table locked by the dealer (their latency is mostly
+ * the wait for the lock);</li>
+ * <li>claim submissions (the offer to the queue of the dealer) and claims from submission to verdict;</li>
+ * <li>the dealer's wait for the write lock (for the players to leave the table) and the time it holds it.</li>
+ * </ul>
+ * The players' wait for the read lock cannot be observed from outside the table, so the blocked operations are the
+ * ones that saw the write lock taken as they started; this misses the ones that only waited behind a queued writer.
+ */
+public class StressHarness {
+
+    /**
+     * A table that times the write lock of the dealer. The lock is only taken by the dealer thread.
+     */
+    private static final class TimedTable extends Table {
+
+        final LatencyHistogram lockWaits = new LatencyHistogram();
+        final LatencyHistogram lockHolds = new LatencyHistogram();
+        private long lockedAt;
+
+        TimedTable(Env env) {
+            super(env);
+        }
+
+        @Override
+        public void lockTable() {
+            long start = System.nanoTime();
+            super.lockTable();
+            lockedAt = System.nanoTime();
+            lockWaits.record(lockedAt - start);
+        }
+
+        @Override
+        public void unlockTable() {
+            long held = System.nanoTime() - lockedAt;
+            super.unlockTable();
+            lockHolds.record(held);
+        }
+    }
+
+    /**
+     * A player that is driven by the harness: it hands the verdicts of the dealer to its driver instead of freezing.
+     */
+    private static final class DrivenPlayer extends Player {
+
+        final BlockingQueue<State> verdicts = new LinkedBlockingQueue<>();
+
+        DrivenPlayer(Env env, Dealer dealer, Table table, int id) {
+            super(env, dealer, table, id, true);
+        }
+
+        @Override
+        public void notifyResult(State result) {
+            verdicts.add(result);
+        }
+    }
+
+    /**
+     * Presses the keys of one player during one game, with histograms of its own (merged when the game is over).
+     */
+    private final class Driver implements Runnable {
+
+        final LatencyHistogram tokenOps = new LatencyHistogram();
+        final LatencyHistogram blockedOps = new LatencyHistogram();
+        final LatencyHistogram submits = new LatencyHistogram();
+        final LatencyHistogram claims = new LatencyHistogram();
+        private final Table table;
+        private final Dealer dealer;
+        private final DrivenPlayer player;
+        private final Random random = new Random();
+        private volatile boolean stop;
+
+        Driver(Table table, Dealer dealer, DrivenPlayer player) {
+            this.table = table;
+            this.dealer = dealer;
+            this.player = player;
+        }
+
+        @Override
+        public void run() {
+            int[] slots = null;
+            while (!stop) {
+                // a player with a full set that was not taken removes one of its tokens, like a player would
+                int slot = slots != null && table.playerHasMaxTokens(player.id) ? slots[random.nextInt(slots.length)]
+                        : random.nextInt(config.tableSize);
+                if (table.getCard(slot) < 0) continue;
+
+                boolean busy = table.isBusy();
+                long start = System.nanoTime();
+                boolean done = table.placeOrRemoveToken(player.id, slot);
+                long elapsed = System.nanoTime() - start;
+                tokenOps.record(elapsed);
+                if (busy) blockedOps.record(elapsed);
+
+                if (done && table.playerHasMaxTokens(player.id)) {
+                    slots = table.getPlayerSlots(player.id);
+                    claim(slots);
+                }
+            }
+        }
+
+        private void claim(int[] slots) {
+            long start = System.nanoTime();
+            dealer.addSetToCheck(new CardSet(slots, player.id));
+            submits.record(System.nanoTime() - start);
+            try {
+                Player.State verdict = null;
+                while (verdict == null && !stop)
+                    verdict = player.verdicts.poll(10, TimeUnit.MILLISECONDS);
+                if (verdict == null) return;
+                claims.record(System.nanoTime() - start);
+                if (verdict == Player.State.Point) points.increment();
+                else if (verdict == Player.State.Penalty) penalties.increment();
+                else unchecked.increment();
+            } catch (InterruptedException e) {
+                stop = true;
+            }
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final UserInterface ui;
+    private final Scheduler timer;
+
+    private final LatencyHistogram tokenOps;
+    private final LatencyHistogram blockedOps;
+    private final LatencyHistogram submits;
+    private final LatencyHistogram claims;
+    private final LatencyHistogram lockWaits;
+    private final LatencyHistogram lockHolds;
+    private final LongAdder points;
+    private final LongAdder penalties;
+    private final LongAdder unchecked;
+    private long games;
+    private long elapsedNanos;
+
+    /**
+     * @param logger - the logger of the games.
+     * @param config - the configuration of the games (the players are driven by the harness whatever their kind).
+     */
+    public StressHarness(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        util = new UtilImpl(config);
+        ui = new UserInterfaceAdapter(); // shows nothing, so the harness measures the table and not the display
+        timer = new TimerScheduler(new SystemClock(), "stress-freeze-timer");
+        tokenOps = new LatencyHistogram();
+        blockedOps = new LatencyHistogram();
+        submits = new LatencyHistogram();
+        claims = new LatencyHistogram();
+        lockWaits = new LatencyHistogram();
+        lockHolds = new LatencyHistogram();
+        points = new LongAdder();
+        penalties = new LongAdder();
+        unchecked = new LongAdder();
+    }
+
+    /**
+     * Builds the configuration of a stress run on top of the defaults of Config, with no hints and no keyboard.
+     *
+     * @param logger            - the logger.
+     * @param players           - the number of players.
+     * @param tableSize         - the number of slots on the table.
+     * @param tableDelaySeconds - the time it takes the dealer to place or remove a card.
+     * @return - the configuration.
+     */
+    public static Config config(Logger logger, int players, int tableSize, double tableDelaySeconds) {
+        Properties properties = new Properties();
+        properties.setProperty("LogLevel", "WARNING");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(players));
+        properties.setProperty("Rows", "1");
+        properties.setProperty("Columns", Integer.toString(tableSize));
+        properties.setProperty("Hints", "False");
+        properties.setProperty("TableDelaySeconds", Double.toString(tableDelaySeconds));
+        properties.setProperty("TurnTimeoutWarningSeconds", "5");
+        properties.setProperty("PlayerKeys1", "");
+        properties.setProperty("PlayerKeys2", "");
+        return new Config(logger, properties);
+    }
+
+    /**
+     * Plays games back to back for a while, hammering the table with every player.
+     *
+     * @param durationMillis - how long to run, in milliseconds.
+     * @throws InterruptedException - if interrupted while waiting for a game.
+     */
+    public void run(long durationMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try {
+            for (long now = start; now < end; now = System.nanoTime())
+                play(end - now);
+        } finally {
+            elapsedNanos += System.nanoTime() - start;
+            timer.shutdown();
+        }
+    }
+
+    private void play(long remainingNanos) throws InterruptedException {
+        Env env = new Env(logger, config, ui, util, GameJournal.disabled(), new SystemClock(), timer, timer,
+                GameMetrics.disabled());
+        DrivenPlayer[] players = new DrivenPlayer[config.players];
+        TimedTable table = new TimedTable(env);
+        Dealer dealer = new Dealer(env, table, players);
+        Driver[] drivers = new Driver[players.length];
+        Thread[] threads = new Thread[players.length];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new DrivenPlayer(env, dealer, table, i);
+            drivers[i] = new Driver(table, dealer, players[i]);
+            threads[i] = new Thread(drivers[i], "stress-player-" + i);
+        }
+
+        Thread dealerThread = new Thread(dealer, "stress-dealer");
+        dealerThread.start();
+        for (Thread thread : threads) thread.start();
+
+        // the game is over when the deck has no more sets, or when the time is up
+        TimeUnit.NANOSECONDS.timedJoin(dealerThread, remainingNanos);
+        for (Driver driver : drivers) driver.stop = true;
+        for (Thread thread : threads) thread.join();
+        dealer.terminate();
+        dealerThread.join();
+
+        for (Driver driver : drivers) {
+            tokenOps.add(driver.tokenOps);
+            blockedOps.add(driver.blockedOps);
+            submits.add(driver.submits);
+            claims.add(driver.claims);
+        }
+        lockWaits.add(table.lockWaits);
+        lockHolds.add(table.lockHolds);
+        ++games;
+    }
+
+    /**
+     * @return - the latencies of all the token placements and removals.
+     */
+    public LatencyHistogram tokenOps() {
+        return tokenOps;
+    }
+
+    /**
+     * @return - the latencies of the token operations that found the table locked by the dealer.
+     */
+    public LatencyHistogram blockedOps() {
+        return blockedOps;
+    }
+
+    /**
+     * @return - the latencies of submitting a claim to the dealer.
+     */
+    public LatencyHistogram submits() {
+        return submits;
+    }
+
+    /**
+     * @return - the latencies of claims, from submission to verdict.
+     */
+    public LatencyHistogram claims() {
+        return claims;
+    }
+
+    /**
+     * @return - the waits of the dealer for the write lock of the table.
+     */
+    public LatencyHistogram lockWaits() {
+        return lockWaits;
+    }
+
+    /**
+     * @return - the times the dealer held the write lock of the table.
+     */
+    public LatencyHistogram lockHolds() {
+        return lockHolds;
+    }
+
+    /**
+     * @return - the number of games played.
+     */
+    public long games() {
+        return games;
+    }
+
+    /**
+     * @return - a report of the throughput, the latencies and the lock waits of the run.
+     */
+    public String summary() {
+        double seconds = elapsedNanos / 1e9;
+        return String.format("%d players, %d slots, %d games in %.1f s%n", config.players, config.tableSize, games, seconds)
+                + String.format("token ops:     %.0f/s  %s%n", tokenOps.count() / seconds, tokenOps)
+                + String.format("  blocked:     %.1f ms waited  %s%n", blockedOps.total() / 1e6, blockedOps)
+                + String.format("claim submits: %.0f/s  %s%n", submits.count() / seconds, submits)
+                + String.format("claims:        %d points, %d penalties, %d unchecked  %s%n",
+                points.sum(), penalties.sum(), unchecked.sum(), claims)
+                + String.format("dealer lock:   %.1f ms waited  %s%n", lockWaits.total() / 1e6, lockWaits)
+                + String.format("  held:        %.1f ms held  %s", lockHolds.total() / 1e6, lockHolds);
+    }
+
+    /**
+     * Runs a stress test and prints the report.
+     *
+     * @param args - the number of players (default 4), the number of slots on the table (default 12), the seconds to
+     *             run (default 10) and the seconds it takes the dealer to place or remove a card (default 0).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int tableSize = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        double tableDelaySeconds = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        Logger logger = Main.initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        StressHarness harness = new StressHarness(logger, config(logger, players, tableSize, tableDelaySeconds));
+        harness.run((long) (seconds * 1000));
+
+        System.out.println(harness.summary());
+        logger.severe(harness.summary());
+        ThreadLogger.logStop(logger, Thread.currentThread().getName());
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
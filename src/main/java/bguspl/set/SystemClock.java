@@ -0,0 +1,24 @@
+package bguspl.set;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The wall clock: the game runs in real time.
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    @Override
+    public long toNanos(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
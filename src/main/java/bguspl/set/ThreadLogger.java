@@ -1,29 +1,66 @@
 package bguspl.set;
 
+import java.lang.reflect.Method;
 import java.util.logging.Logger;
 
-public class ThreadLogger extends Thread {
+public class ThreadLogger {
+
+    /**
+     * Thread.ofVirtual() and the Thread.Builder methods used on its result (null if the JVM has no virtual threads).
+     */
+    private static final Method ofVirtual;
+    private static final Method builderName;
+    private static final Method builderUnstarted;
+
+    static {
+        Method virtual = null, name = null, unstarted = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            virtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            virtual.invoke(null); // throws on JVMs where virtual threads are a disabled preview feature
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            virtual = null;
+        }
+        ofVirtual = virtual;
+        builderName = name;
+        builderUnstarted = unstarted;
+    }
 
     final Logger logger;
+    private final Thread thread;
 
     public ThreadLogger(Runnable target, String name, Logger logger) {
-        super(target, name);
+        this(target, name, logger, false);
+    }
+
+    public ThreadLogger(Runnable target, String name, Logger logger, boolean virtual) {
+        this.thread = newThread(target, name, virtual);
         this.logger = logger;
     }
 
     public void startWithLog() {
         logStart(logger, getName());
-        super.start();
+        thread.start();
     }
 
     public void joinWithLog() throws InterruptedException {
         try {
-            join();
+            thread.join();
         } finally {
             logStop(logger, getName());
         }
     }
 
+    public void interrupt() {
+        thread.interrupt();
+    }
+
+    public String getName() {
+        return thread.getName();
+    }
+
     public static void logStart(Logger logger, String name) {
         logger.info("thread " + name + " starting.");
     }
@@ -31,4 +68,27 @@ public class ThreadLogger extends Thread {
     public static void logStop(Logger logger, String name) {
         logger.info("thread " + name + " terminated.");
     }
+
+    /**
+     * @return - true iff the running JVM supports virtual threads.
+     */
+    public static boolean virtualThreadsSupported() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * Creates an unstarted thread, which is a virtual thread if requested and supported by the JVM.
+     *
+     * @param target  - the code the thread runs.
+     * @param name    - the name of the thread.
+     * @param virtual - true to create a virtual thread (falls back to a platform thread if not supported).
+     * @return - the new thread.
+     */
+    public static Thread newThread(Runnable target, String name, boolean virtual) {
+        if (virtual && ofVirtual != null) try {
+            Object builder = builderName.invoke(ofVirtual.invoke(null), name);
+            return (Thread) builderUnstarted.invoke(builder, target);
+        } catch (ReflectiveOperationException ignored) {}
+        return new Thread(target, name);
+    }
 }
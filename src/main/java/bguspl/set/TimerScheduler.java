@@ -0,0 +1,65 @@
+package bguspl.set;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scheduler for clocks that move by themselves: the actions run on daemon timer threads (one by default), which are
+ * only created when the first action is scheduled.
+ */
+public class TimerScheduler implements Scheduler {
+
+    private final Clock clock;
+    private final String name;
+    private final int threads;
+    private ScheduledExecutorService timer;
+    private boolean shutdown;
+
+    /**
+     * @param clock - the clock the delays are measured on.
+     * @param name  - the name of the timer thread.
+     */
+    public TimerScheduler(Clock clock, String name) {
+        this(clock, name, 1);
+    }
+
+    /**
+     * @param clock   - the clock the delays are measured on.
+     * @param name    - the name of the timer threads (numbered if there are more than one).
+     * @param threads - the number of timer threads, so actions that take a while do not hold up the others.
+     */
+    public TimerScheduler(Clock clock, String name, int threads) {
+        this.clock = clock;
+        this.name = name;
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public void schedule(Runnable action, long delayMillis) {
+        ScheduledExecutorService timer = timer();
+        if (timer != null) try {
+            timer.schedule(action, clock.toNanos(delayMillis), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ignored) {} // shut down meanwhile
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+        if (timer != null) timer.shutdownNow();
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null && !shutdown) {
+            AtomicInteger created = new AtomicInteger();
+            timer = Executors.newScheduledThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, threads == 1 ? name : name + "-" + created.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return shutdown ? null : timer;
+    }
+}
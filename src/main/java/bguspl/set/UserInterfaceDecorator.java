@@ -2,6 +2,7 @@ package bguspl.set;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -10,53 +11,68 @@ public class UserInterfaceDecorator implements UserInterface {
     private final Logger logger;
     private final Util util;
     private final UserInterface ui;
+    private final String tag;
+
+    /**
+     * The asynchronous handler of the logger, used to log without building the messages on the game threads.
+     * Null if the logger does not have one.
+     */
+    private final AsyncLogHandler events;
 
     public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
+        this(logger, util, ui, "");
+        if (ui == null) System.out.println("running without a user interface. Check logs.");
+    }
+
+    /**
+     * @param tag - the prefix of the logged events, telling apart the games that share the logger.
+     */
+    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui, String tag) {
         this.ui = ui;
         this.logger = logger;
         this.util = util;
-
-        if (ui == null) System.out.println("running without a user interface. Check logs.");
+        this.tag = tag;
+        this.events = AsyncLogHandler.of(logger);
     }
 
     @Override
     public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
+        log("placing card {0} in slot {1}", card, slot, 0);
         util.spin();
         if (ui != null) ui.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
+        log("removing card from slot {0}", slot, 0, 0);
         util.spin();
         if (ui != null) ui.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
+        log("player {0} placing token on slot {1}", player + 1, slot, 0);
         util.spin();
         if (ui != null) ui.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        logger.severe("removing all tokens");
+        log("removing all tokens", 0, 0, 0);
         util.spin();
         if (ui != null) ui.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
+        log("removing tokens from slot {0}", slot, 0, 0);
         util.spin();
         if (ui != null) ui.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
+        log("removing player {0} token from slot {1}", player + 1, slot, 0);
         util.spin();
         if (ui != null) ui.removeToken(player, slot);
     }
@@ -64,41 +80,57 @@ public class UserInterfaceDecorator implements UserInterface {
     @Override
     public void setCountdown(long millies, boolean warn) {
         if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
+            log("updating countdown to {0}", millies, 0, 0);
         if (ui != null) ui.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
+        log("updating elapsed time to {0}", millies, 0, 0);
         util.spin();
         if (ui != null) ui.setElapsed(millies);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
+        log("setting player {0} freeze to {1}", player + 1, millies, 0);
         util.spin();
         if (ui != null) ui.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
+        log("setting player {0} score to {1}", player + 1, score, 0);
         util.spin();
         if (ui != null) ui.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
-        logger.severe("announcing winner(s): " + String.join(", ", winners));
+        if (logger.isLoggable(Level.SEVERE)) {
+            List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
+            logger.severe(tag + "announcing winner(s): " + String.join(", ", winners));
+        }
         if (ui != null) ui.announceWinner(players);
     }
 
+    /**
+     * Logs a game event whose message has up to 3 numeric arguments ({0}, {1} and {2} in the pattern). Nothing is
+     * built if the level is disabled, and with an asynchronous handler the message is only built by its writer.
+     */
+    private void log(String pattern, long arg0, long arg1, long arg2) {
+        if (!logger.isLoggable(Level.SEVERE)) return;
+        if (events != null)
+            events.log(Level.SEVERE, tag, pattern, arg0, arg1, arg2);
+        else
+            logger.severe(tag + pattern.replace("{0}", Long.toString(arg0))
+                    .replace("{1}", Long.toString(arg1))
+                    .replace("{2}", Long.toString(arg2)));
+    }
+
     @Override
     public void dispose() {
-        logger.severe("disposing of user interface elements");
+        logger.severe(tag + "disposing of user interface elements");
         if (ui != null) ui.dispose();
     }
 }
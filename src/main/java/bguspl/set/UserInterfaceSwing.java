@@ -4,10 +4,12 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -15,6 +17,11 @@ import static java.lang.String.format;
 
 /**
  * Java Swing implementation of the UserInterface interface.
+ * <p>
+ * The game threads never touch the Swing components: they only update the shown state and mark the changed slots.
+ * A render timer on the event dispatch thread, firing at most config.maxFrameRate times per second, takes a copy of
+ * the slots changed since the last frame and samples the countdown, the freezes and the scores, then draws them
+ * without holding any lock the game threads wait on.
  */
 public class UserInterfaceSwing extends JFrame implements UserInterface {
 
@@ -23,6 +30,90 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
+    private final Timer renderTimer;
+    private final ShownState state;
+
+    /**
+     * The shown state, written by the game threads and read by the render timer. The table is guarded by this
+     * object, and taken by the render timer as a copy of the changed slots; the rest is sampled, so only the latest
+     * values are drawn.
+     */
+    static final class ShownState {
+
+        private final int[] cards;
+        private final boolean[][] tokens;
+        private final BitSet dirtySlots;
+
+        volatile long countdown;
+        volatile boolean warn;
+        volatile boolean elapsed;
+        volatile boolean timerStarted;
+        final AtomicLongArray freezes;
+        final AtomicIntegerArray scores;
+        volatile int[] winners;
+
+        ShownState(int tableSize, int players) {
+            cards = new int[tableSize];
+            Arrays.fill(cards, -1);
+            tokens = new boolean[tableSize][players];
+            dirtySlots = new BitSet(tableSize);
+            freezes = new AtomicLongArray(players);
+            scores = new AtomicIntegerArray(players);
+        }
+
+        synchronized void placeCard(int card, int slot) {
+            cards[slot] = card;
+            dirtySlots.set(slot);
+        }
+
+        synchronized void removeCard(int slot) {
+            cards[slot] = -1;
+            dirtySlots.set(slot);
+        }
+
+        synchronized void setToken(int player, int slot, boolean placed) {
+            tokens[slot][player] = placed;
+            dirtySlots.set(slot);
+        }
+
+        synchronized void removeTokens(int slot) {
+            Arrays.fill(tokens[slot], false);
+            dirtySlots.set(slot);
+        }
+
+        synchronized void removeAllTokens() {
+            for (int slot = 0; slot < tokens.length; slot++)
+                removeTokens(slot);
+        }
+
+        /**
+         * @return - a copy of the slots changed since the last call, in slot order (each slot once, with its latest
+         * card and tokens).
+         */
+        synchronized List<SlotUpdate> takeDirtySlots() {
+            List<SlotUpdate> updates = new ArrayList<>(dirtySlots.cardinality());
+            for (int slot = dirtySlots.nextSetBit(0); slot >= 0; slot = dirtySlots.nextSetBit(slot + 1))
+                updates.add(new SlotUpdate(slot, cards[slot], tokens[slot].clone()));
+            dirtySlots.clear();
+            return updates;
+        }
+    }
+
+    /**
+     * A changed slot, as it is to be drawn.
+     */
+    static final class SlotUpdate {
+
+        final int slot;
+        final int card;
+        final boolean[] tokens;
+
+        SlotUpdate(int slot, int card, boolean[] tokens) {
+            this.slot = slot;
+            this.card = card;
+            this.tokens = tokens;
+        }
+    }
 
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
@@ -31,6 +122,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        state = new ShownState(config.tableSize, config.players);
+
         timerPanel = new TimerPanel();
         gamePanel = new GamePanel();
         playersPanel = new PlayersPanel();
@@ -66,9 +159,38 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         addKeyListener(new InputManager(logger, config, players));
         addWindowListener(new WindowManager());
 
+        renderTimer = new Timer(Math.max(1, 1000 / config.maxFrameRate), e -> render());
+        renderTimer.start();
+
         EventQueue.invokeLater(() -> setVisible(true));
     }
 
+    /**
+     * Draws the changes since the last frame. Runs on the event dispatch thread.
+     */
+    private void render() {
+        // the images are loaded and the labels are built outside the lock, so the game threads never wait on them
+        for (SlotUpdate update : state.takeDirtySlots())
+            gamePanel.updateSlot(update.slot, update.card, update.tokens);
+
+        if (state.timerStarted) {
+            if (state.elapsed) timerPanel.setElapsed(state.countdown);
+            else timerPanel.setCountdown(state.countdown, state.warn);
+        }
+
+        for (int player = 0; player < config.players; player++) {
+            playersPanel.setFreeze(player, state.freezes.get(player));
+            playersPanel.setScore(player, state.scores.get(player));
+        }
+
+        int[] players = state.winners;
+        if (players != null && !winnerPanel.isVisible()) {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(players);
+            winnerPanel.setVisible(true);
+        }
+    }
+
     private class TimerPanel extends JPanel {
 
         private final JLabel timerField;
@@ -91,46 +213,37 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void setCountdown(long millies, boolean warn) {
-            timerField.setText(generateTime(millies, warn));
-            timerField.setForeground(warn ? Color.RED : Color.BLACK);
+            setText(generateTime(millies, warn), warn ? Color.RED : Color.BLACK);
         }
 
         private void setElapsed(long millies) {
-            timerField.setText("Elapsed time: " + millies / 1000);
+            setText("Elapsed time: " + millies / 1000, Color.BLACK);
+        }
+
+        private void setText(String text, Color color) {
+            if (!text.equals(timerField.getText())) timerField.setText(text);
+            if (!color.equals(timerField.getForeground())) timerField.setForeground(color);
         }
     }
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
+        private final CardImageCache images;
         private final Image[][] grid;
-        private final boolean[][][] playerTokens;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
         private GamePanel() {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            // the card images are loaded on demand (or drawn, if there is no image for a card), and warmed up in the
+            // background
+            images = new CardImageCache(config, new CardRenderer(config, new UtilImpl(config)), config.cardCacheSize, 2);
+            Image emptyCard = images.get(CardImageCache.EMPTY_CARD);
+            images.warmUp(0, config.deckSize);
 
             grid = new Image[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
@@ -148,54 +261,23 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
-        }
-
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
-        }
-
-        private void placeToken(int player, int slot) {
+        private void updateSlot(int slot, int card, boolean[] tokens) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
-        }
-
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            Image image = images.get(card < 0 ? CardImageCache.EMPTY_CARD : card);
+            if (grid[row][column] != image) {
+                grid[row][column] = image;
+                repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
             }
+            String text = generatePlayersTokenText(tokens);
+            if (!text.equals(tokenText[row][column].getText()))
+                tokenText[row][column].setText(text);
         }
 
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private String generatePlayersTokenText(int row, int column) {
+        private String generatePlayersTokenText(boolean[] tokens) {
             String text = "";
             for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
+                if (tokens[player])
                     text = text.concat(config.playerNames[player] + ", ");
             }
             if (text.length() < 2)
@@ -236,17 +318,16 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void setFreeze(int player, long millies) {
-            if (millies > 0) {
-                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
-                this.playersTable[0][player].setForeground(Color.RED);
-            } else {
-                this.playersTable[0][player].setText(config.playerNames[player]);
-                this.playersTable[0][player].setForeground(Color.BLACK);
-            }
+            JLabel label = playersTable[0][player];
+            String text = millies > 0 ? config.playerNames[player] + " (" + millies / 1000 + ")" : config.playerNames[player];
+            Color color = millies > 0 ? Color.RED : Color.BLACK;
+            if (!text.equals(label.getText())) label.setText(text);
+            if (!color.equals(label.getForeground())) label.setForeground(color);
         }
 
         private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
+            String text = Integer.toString(score);
+            if (!text.equals(playersTable[1][player].getText())) playersTable[1][player].setText(text);
         }
     }
 
@@ -276,63 +357,69 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        gamePanel.images.warmUp(card, card + 1);
+        state.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        state.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        state.setToken(player, slot, true);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        state.removeAllTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        state.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        state.setToken(player, slot, false);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        state.warn = warn;
+        state.elapsed = false;
+        state.countdown = millies;
+        state.timerStarted = true;
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        state.elapsed = true;
+        state.countdown = millies;
+        state.timerStarted = true;
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        state.freezes.set(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        state.scores.set(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        state.winners = players.clone();
     }
 
     @Override
     public void dispose() {
+        renderTimer.stop();
+        gamePanel.images.close();
         super.dispose();
     }
 }
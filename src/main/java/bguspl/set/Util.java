@@ -23,6 +23,14 @@ public interface Util {
      */
     int[][] cardsToFeatures(int[] cards);
 
+    /**
+     * Converts a card id to a packed bitmask with one bit per feature (bit i * config.featureSize + value is set).
+     *
+     * @param card - the card id.
+     * @return - the bitmask, or 0 if config.featureCount * config.featureSize exceeds the 64 bits of a long.
+     */
+    long cardToBitmask(int card);
+
     /**
      * Checks if an array of cards forms a legal set.
      *
@@ -31,6 +39,15 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Computes the card that completes two cards to a legal set, when sets have 3 cards (config.featureSize == 3).
+     *
+     * @param first  - a card id.
+     * @param second - another card id.
+     * @return - the id of the only card that forms a legal set with both cards, or -1 if sets do not have 3 cards.
+     */
+    int thirdCard(int first, int second);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +57,16 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds and returns up to count sets in the first size entries of the given array of cards.
+     *
+     * @param cards - an array of card ids (it is not modified).
+     * @param size  - the number of entries of the array to search.
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(int[] cards, int size, int count);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
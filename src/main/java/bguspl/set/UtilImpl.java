@@ -13,8 +13,29 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The features of every card in the deck, indexed by card id (computed once).
+     */
+    private final int[][] cardFeatures;
+
+    /**
+     * The one-hot bitmask of every card in the deck, indexed by card id (null if the features do not fit in a long).
+     */
+    private final long[] cardBitmasks;
+
     public UtilImpl(Config config) {
         this.config = config;
+
+        cardFeatures = new int[config.deckSize][config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            cardToFeatures(card, cardFeatures[card]);
+
+        if (config.featureCount * config.featureSize <= Long.SIZE) {
+            cardBitmasks = new long[config.deckSize];
+            for (int card = 0; card < config.deckSize; ++card)
+                for (int i = 0; i < config.featureCount; ++i)
+                    cardBitmasks[card] |= 1L << (i * config.featureSize + cardFeatures[card][i]);
+        } else cardBitmasks = null;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -26,35 +47,56 @@ public class UtilImpl implements Util {
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        return cardFeatures[card].clone();
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        IntStream.range(0, cards.length).forEach(i -> features[i] = cardToFeatures(cards[i]));
         return features;
     }
 
+    @Override
+    public long cardToBitmask(int card) {
+        return cardBitmasks == null ? 0L : cardBitmasks[card];
+    }
+
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (cards.length < 2) return false;
+        if (cardBitmasks == null) return testSetByFeatures(cards);
+
+        long union = 0L, intersection = -1L;
+        for (int card : cards) {
+            union |= cardBitmasks[card];
+            intersection &= cardBitmasks[card];
+        }
+
+        // a sameSame feature adds a single value to the union, a butDifferent feature adds one value per card
+        int sameSame = Long.bitCount(intersection);
+        return Long.bitCount(union) == sameSame + (config.featureCount - sameSame) * cards.length;
+    }
+
+    /**
+     * Checks if an array of cards forms a legal set by comparing their features one by one (used when the
+     * bitmasks of the cards do not fit in a long).
+     */
+    private boolean testSetByFeatures(int[] cards) {
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                if (cardFeatures[cards[0]][i] != cardFeatures[cards[j]][i]) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (cardFeatures[cards[j - 1]][i] == cardFeatures[cards[k]][i]) {
                         butDifferent = false;
                         break;
                     }
@@ -66,18 +108,75 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        int[] cards = new int[deck.size()];
+        int i = 0;
+        for (int card : deck)
+            cards[i++] = card;
+        return findSets(cards, cards.length, count);
+    }
+
+    @Override
+    public List<int[]> findSets(int[] cards, int size, int count) {
+        // with 3 values per feature the third card of a set is determined by the first two
+        if (config.featureSize == 3) return findSetsByCompletion(cards, size, count);
+        return findSetsByCombinations(cards, size, count);
+    }
+
+    /**
+     * Finds sets by completing every pair of cards to the unique third card and looking it up in the deck.
+     * Each set is reported once, from its two lowest card ids.
+     */
+    private List<int[]> findSetsByCompletion(int[] cards, int n, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        long[] inDeck = new long[(config.deckSize + Long.SIZE - 1) / Long.SIZE];
+        for (int i = 0; i < n; ++i)
+            inDeck[cards[i] / Long.SIZE] |= 1L << cards[i];
+
+        for (int i = 0; i < n; ++i)
+            for (int j = i + 1; j < n; ++j) {
+                int first = Math.min(cards[i], cards[j]);
+                int second = Math.max(cards[i], cards[j]);
+                int third = thirdCard(first, second);
+                if (third > second && (inDeck[third / Long.SIZE] & 1L << third) != 0) {
+                    sets.add(new int[]{first, second, third});
+                    if (sets.size() >= count) return sets;
+                }
+            }
+        return sets;
+    }
+
+    /**
+     * Every feature of the third card is either the value shared by both cards or the value that neither of them has.
+     */
+    @Override
+    public int thirdCard(int first, int second) {
+        if (config.featureSize != 3) return -1;
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i)
+            card = card * config.featureSize
+                    + (2 * config.featureSize - cardFeatures[first][i] - cardFeatures[second][i]) % config.featureSize;
+        return card;
+    }
+
+    /**
+     * Finds sets by testing every config.featureSize-combination of the cards in lexicographic order.
+     */
+    private List<int[]> findSetsByCombinations(int[] deck, int n, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
         int r = config.featureSize;
         int[] combination = new int[r];
+        int[] cards = new int[r];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+        while (combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                cards[i] = deck[combination[i]];
             if (testSet(cards)) {
-                sets.add(cards);
+                int[] set = cards.clone();
+                Arrays.sort(set);
+                sets.add(set);
                 if (sets.size() >= count) return sets;
             }
 
@@ -91,7 +190,7 @@ public class UtilImpl implements Util {
     }
 
     public void spin() {
-        if (config.randomSpinMax <= 0) return;
+        if (config.randomSpinMax <= 0 || config.simulation) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
         for (int i = 0; i < cycles; ++i)
             Thread.yield();
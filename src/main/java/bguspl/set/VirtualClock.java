@@ -0,0 +1,36 @@
+package bguspl.set;
+
+/**
+ * A manual clock that is moved by the game itself, used for headless simulations. Nothing waits in real time:
+ * sleeping moves the clock forward by the sleep time, and whenever the dealer is idle the other threads get a chance
+ * to run before the clock skips ahead to the next scheduled action or dealer event.
+ */
+public class VirtualClock extends ManualClock {
+
+    /**
+     * @param start - the initial time of the clock, in milliseconds.
+     */
+    public VirtualClock(long start) {
+        super(start);
+    }
+
+    /**
+     * Moves the clock forward by the sleep time and returns at once.
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (millis > 0) advanceBy(millis);
+    }
+
+    @Override
+    public long toNanos(long millis) {
+        return 0;
+    }
+
+    @Override
+    public void idle(long until) {
+        Thread.yield();
+        advanceTo(Math.min(until, nextTaskTime()));
+    }
+}
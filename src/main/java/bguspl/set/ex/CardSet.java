@@ -4,6 +4,7 @@ public class CardSet {
 
     private int[] slots;
     private int playerId;
+    private long submittedNanos;
 
     public CardSet(int [] slots, int playerId) {
         this.slots = slots;
@@ -18,4 +19,12 @@ public class CardSet {
         return playerId;
     }
 
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    void setSubmittedNanos(long submittedNanos) {
+        this.submittedNanos = submittedNanos;
+    }
+
 }
@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free queue of the sets that players claim, with many producers (the players) and a single consumer (the
+ * dealer). The consumer parks while the queue is empty and the first claim of a burst unparks it. Other threads may
+ * also wake the consumer up; such a wake-up is not lost if it comes before the consumer parks, but ends its next
+ * wait instead.
+ */
+public class ClaimQueue {
+
+    private static final class Node {
+        CardSet set;
+        volatile Node next;
+
+        Node(CardSet set) {
+            this.set = set;
+        }
+    }
+
+    /**
+     * The last node linked by a producer.
+     */
+    private final AtomicReference<Node> tail;
+
+    /**
+     * The last node taken by the consumer (its set was already polled). Accessed by the consumer only.
+     */
+    private Node head;
+
+    /**
+     * The thread that polls the queue (set on its first call to await).
+     */
+    private volatile Thread consumer;
+
+    /**
+     * True while the consumer is parked or about to park.
+     */
+    private final AtomicBoolean parked;
+
+    /**
+     * Set by wakeUp and cleared by await, so a wake-up that comes while the consumer is not parked ends its next wait.
+     */
+    private final AtomicBoolean woken;
+
+    public ClaimQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+        parked = new AtomicBoolean(false);
+        woken = new AtomicBoolean(false);
+    }
+
+    /**
+     * Adds a claim to the queue and wakes up the consumer if it is parked. Called by any thread.
+     *
+     * @param set - the claimed set.
+     */
+    public void offer(CardSet set) {
+        Node node = new Node(set);
+        tail.getAndSet(node).next = node;
+        unpark();
+    }
+
+    /**
+     * Wakes up the consumer if it is parked in await, or else makes its next await return at once. Called by any
+     * thread.
+     */
+    public void wakeUp() {
+        woken.set(true);
+        unpark();
+    }
+
+    private void unpark() {
+        if (parked.getAndSet(false)) LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Removes the oldest claim from the queue. Called by the consumer only.
+     *
+     * @return - the claim, or null if the queue is empty.
+     */
+    public CardSet poll() {
+        Node next = head.next;
+        if (next == null) return null;
+        CardSet set = next.set;
+        next.set = null;
+        head = next;
+        return set;
+    }
+
+    /**
+     * @return - true iff there are no claims waiting.
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Parks the consumer until a claim is offered, wakeUp is called, the timeout passes or the thread is interrupted.
+     * Returns immediately if there are claims waiting, or if wakeUp was called since the last await.
+     *
+     * @param timeoutNanos - the maximum time to park.
+     */
+    public void await(long timeoutNanos) {
+        consumer = Thread.currentThread();
+        parked.set(true);
+        if (!woken.getAndSet(false) && isEmpty()) LockSupport.parkNanos(this, timeoutNanos);
+        parked.set(false);
+    }
+}
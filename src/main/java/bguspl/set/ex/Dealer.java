@@ -3,15 +3,9 @@ import bguspl.set.Env;
 import bguspl.set.ThreadLogger;
 import bguspl.set.ex.Player.State;
 
-import java.util.List;
-
+import java.util.ArrayList;
 import java.util.Random;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * This class manages the dealer's threads and data
@@ -30,9 +24,11 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
+    private final Deck deck;
+
+    private final Random random;
 
     /**
      * True iff game should be terminated.
@@ -44,19 +40,28 @@ public class Dealer implements Runnable {
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
-    private ThreadLogger[] playerThreads;
+    private volatile ThreadLogger[] playerThreads;
 
-    private BlockingQueue<CardSet> setsToCheck;
+    private final ClaimQueue setsToCheck;
+
+    /**
+     * The timed events of the dealer (countdown display updates and the reshuffle deadline).
+     */
+    private final EventScheduler scheduler;
 
-    private Thread dealerThread;
+    private EventScheduler.Event countdownTick;
+    private EventScheduler.Event reshuffleDeadline;
 
-    private int AlmostSeconds = 940;
+    private volatile Thread dealerThread;
+
+    private int OneSecond = 1000;
     private int AlmostTenMillis = 9;
     
     public enum Num {
         NegONE(-1),
         ZERO(0),
-        ONE(1);
+        ONE(1),
+        THREE(3);
 
         public final int value;
     
@@ -70,8 +75,11 @@ public class Dealer implements Runnable {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(Num.ZERO.value, env.config.deckSize).boxed().collect(Collectors.toList());
-        setsToCheck = new LinkedBlockingQueue<>();
+        random = new Random();
+        deck = new Deck(env.config.deckSize);
+        deck.shuffle(random);
+        setsToCheck = new ClaimQueue();
+        scheduler = new EventScheduler(setsToCheck, env.clock);
     }
 
     /**
@@ -81,7 +89,6 @@ public class Dealer implements Runnable {
     public void run() {
         dealerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        table.lockTable();
         createPlayerThreads();
         while (!shouldFinish()) {
             placeCardsOnTable();
@@ -98,31 +105,36 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
+        while (!terminate && env.clock.currentTimeMillis() < reshuffleTime) {
+            if (!table.hasSets()) {
+                env.logger.info("no legal sets on the table, reshuffling.");
+                return;
+            }
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
+            scheduler.runDueEvents();
             if (!setsToCheck.isEmpty()) 
-                executeSetCheck();
-            if (table.GetEmptySlots().size() > Num.ZERO.value) 
-                placeCardsOnTable();
-            }
+                executeSetChecks();
+        }
     }
 
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
-        // Reverse order termination of player threads
+        // Reverse order termination of player threads (which may not exist yet if the game did not start)
+        ThreadLogger[] threads = playerThreads;
         for (int i = players.length - 1; i >= 0; i--) {
             try {
-                players[i].terminate(); // Terminate player
-                playerThreads[i].interrupt();
-                playerThreads[i].joinWithLog(); // Dealer wait for player to terminate
+                if (players[i] != null) players[i].terminate(); // Terminate player
+                if (threads == null) continue;
+                threads[i].interrupt();
+                threads[i].joinWithLog(); // Dealer wait for player to terminate
             } catch (InterruptedException ignored) {}
         }
         // Terminate dealer after all players are done
         terminate = true;
-        dealerThread.interrupt(); // Ensure dealer wakes up if waiting
+        Thread thread = dealerThread;
+        if (thread != null) thread.interrupt(); // Ensure dealer wakes up if waiting
     }
 
     /**
@@ -131,29 +143,48 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, Num.ONE.value).size() == Num.ZERO.value;
+        return terminate || env.util.findSets(deck.cards(), deck.size(), Num.ONE.value).size() == Num.ZERO.value;
     }
 
-    private void executeSetCheck() {
+    /**
+     * Checks all the claimed sets that are waiting, in the order they were claimed, under a single table lock.
+     * A claim whose tokens were removed by an earlier claim in the batch gets neither a point nor a penalty.
+     */
+    private void executeSetChecks() {
+        boolean removed = false;
         table.lockTable();
-        CardSet set = setsToCheck.poll();
-        synchronized (players[set.getPlayerId()]) {        
-            if (table.isLegalSet(set.getSlots())) {
-                int[] cards = table.slotsToCards(set.getSlots());
-                if (env.util.testSet(cards)) {
-                    players[set.getPlayerId()].setFreezeState(State.Point);
-                    updateTimerDisplay(true);
-                    for (int slot: set.getSlots()) {
-                        table.removeCard(slot);
-                    }
-                }
-                else {
-                    players[set.getPlayerId()].setFreezeState(State.Penalty);
+        for (CardSet set = setsToCheck.poll(); set != null; set = setsToCheck.poll()) {
+            removed |= executeSetCheck(set);
+        }
+        table.unlockTable();
+        if (removed)
+            placeCardsOnTable();
+    }
+
+    /**
+     * Checks a claimed set, rewards or penalizes the player and notifies it of the result.
+     *
+     * @return - true iff the set was legal and its cards were removed from the table.
+     */
+    private boolean executeSetCheck(CardSet set) {
+        State result = State.Free;
+        if (table.isLegalSet(set.getPlayerId(), set.getSlots())) {
+            int[] cards = table.slotsToCards(set.getSlots());
+            if (env.util.testSet(cards)) {
+                result = State.Point;
+                updateTimerDisplay(true);
+                for (int slot: set.getSlots()) {
+                    table.removeCard(slot);
                 }
             }
-            players[set.getPlayerId()].notifyResult();
+            else {
+                result = State.Penalty;
+            }
         }
-        table.unlockTable();
+        env.journal.claimVerdict(set.getPlayerId(), result.ordinal());
+        env.metrics.claimVerdict(result.ordinal(), set.getSubmittedNanos());
+        players[set.getPlayerId()].notifyResult(result);
+        return result == State.Point;
     }
 
     /**
@@ -161,64 +192,76 @@ public class Dealer implements Runnable {
      */
     private void placeCardsOnTable() {
         table.lockTable();
-        Random rand = new Random();
-        while (table.GetEmptySlots().size() > Num.ZERO.value && deck.size() > Num.ZERO.value) {
-            int slotIndex = rand.nextInt(table.GetEmptySlots().size());
-            int card = rand.nextInt(deck.size());
-            table.placeCard(deck.get(card), table.GetEmptySlots().get(slotIndex));
-            deck.remove(card);
+        boolean placed = false;
+        // the empty slots in slot order; a filled slot is removed from the list, keeping the order
+        ArrayList<Integer> emptySlots = table.GetEmptySlots();
+        while (emptySlots.size() > Num.ZERO.value && !deck.isEmpty()) {
+            int slotIndex = random.nextInt(emptySlots.size());
+            table.placeCard(deck.draw(), emptySlots.remove(slotIndex));
+            placed = true;
         }
+        if (placed && env.config.hints) table.hints();
         table.unlockTable();
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until the next scheduled event is due or the thread is awakened by a claim.
      */
     private void sleepUntilWokenOrTimeout() {
-        try {
-            synchronized(this) {
-                if (reshuffleTime - System.currentTimeMillis() > env.config.turnTimeoutWarningMillis) {
-                    wait(AlmostSeconds);
-                }
-                else {
-                    wait(AlmostTenMillis);
-                }
-            }
-        } 
-        catch (InterruptedException ignored) {
-        }
+        scheduler.awaitNextEvent();
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Reset and/or update the countdown and the countdown display, and schedule the next display update.
      */
     private void updateTimerDisplay(boolean reset) {
+        long now = env.clock.currentTimeMillis();
         if (reset) {
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+            reshuffleTime = now + env.config.turnTimeoutMillis;
+            scheduler.cancel(reshuffleDeadline);
+            // nothing to run: waking up is enough for the timer loop to end the round
+            reshuffleDeadline = scheduler.schedule(reshuffleTime, () -> {});
         }
-        long gap = reshuffleTime - System.currentTimeMillis();
+        long gap = reshuffleTime - now;
         boolean warn = false;
         if (gap < env.config.turnTimeoutWarningMillis) {
             warn = true;
         }       
+        scheduler.cancel(countdownTick);
         if (gap > Num.ZERO.value) {
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), warn);
+            env.ui.setCountdown(gap, warn);
+            countdownTick = scheduler.schedule(nextCountdownTick(now, gap, warn), () -> updateTimerDisplay(false));
         } 
     }
 
+    /**
+     * Computes when the countdown display changes next: every AlmostTenMillis during the warning period, otherwise
+     * when the countdown reaches its next whole second or the warning period starts.
+     */
+    private long nextCountdownTick(long now, long gap, boolean warn) {
+        if (warn) return now + AlmostTenMillis;
+        long nextSecond = reshuffleTime - (gap - Num.ONE.value) / OneSecond * OneSecond;
+        long warningStart = reshuffleTime - env.config.turnTimeoutWarningMillis;
+        return Math.max(now + Num.ONE.value, Math.min(nextSecond, warningStart));
+    }
+
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
         table.lockTable();
-        Random randomSlot = new Random();
-        while (table.GetEmptySlots().size() != table.getTableSize()) {
-            int slot = randomSlot.nextInt(table.getTableSize());
+        int cardsLeft = table.countCards();
+        while (cardsLeft > Num.ZERO.value) {
+            int slot = random.nextInt(table.getTableSize());
             if (table.getCard(slot) != Num.NegONE.value) {
                 deck.add(table.getCard(slot));
                 table.removeCard(slot);
+                --cardsLeft;
             }
         }
+        deck.shuffle(random);
+        env.journal.reshuffle();
+        env.metrics.reshuffle();
         table.unlockTable();
     }
 
@@ -238,14 +281,16 @@ public class Dealer implements Runnable {
             
         }
         env.ui.announceWinner(winners);
+        table.unlockTable();
     }
 
     private void createPlayerThreads() {
-        playerThreads = new ThreadLogger[players.length];
-        for (int i = Num.ZERO.value; i < players.length; i++) {
-            playerThreads[i] = new ThreadLogger(players[i], "Player's ID: " + players[i].id, env.logger);
-            playerThreads[i].startWithLog();
-        }
+        ThreadLogger[] threads = new ThreadLogger[players.length];
+        for (int i = Num.ZERO.value; i < players.length; i++)
+            threads[i] = new ThreadLogger(players[i], "Player's ID: " + players[i].id, env.logger, env.config.virtualThreads);
+        playerThreads = threads;
+        for (ThreadLogger thread : threads)
+            thread.startWithLog();
     }
 
     private int maxScore() {
@@ -267,8 +312,26 @@ public class Dealer implements Runnable {
         return numWinners;
     }
 
-    public synchronized void addSetToCheck(CardSet set) {
+    /**
+     * Runs an action on the shared scheduler of the environment after a delay. Called by the player threads.
+     *
+     * @param action      - the action to run.
+     * @param delayMillis - the delay in milliseconds.
+     */
+    public void schedule(Runnable action, long delayMillis) {
+        if (!terminate)
+            env.scheduler.schedule(action, delayMillis);
+    }
+
+    /**
+     * Submits a set claimed by a player and wakes up the dealer to check it. Called by the player threads.
+     *
+     * @param set - the claimed set.
+     */
+    public void addSetToCheck(CardSet set) {
+        env.journal.claimSubmitted(set.getPlayerId(), set.getSlots());
+        env.metrics.claimSubmitted();
+        set.setSubmittedNanos(env.metrics.now());
         setsToCheck.offer(set);
-        notifyAll();
     }
 }
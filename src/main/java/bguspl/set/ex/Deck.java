@@ -0,0 +1,87 @@
+package bguspl.set.ex;
+
+import bguspl.set.ex.Dealer.Num;
+
+import java.util.Random;
+
+/**
+ * This class holds the card ids that are left in the dealer's deck.
+ *
+ * @inv 0 <= size() <= capacity
+ */
+public class Deck {
+
+    /**
+     * The card ids, the first size of them are in the deck (the top of the deck is at size - 1).
+     */
+    private final int[] cards;
+
+    /**
+     * The number of cards in the deck.
+     */
+    private int size;
+
+    /**
+     * Creates a deck with all the card ids from 0 to deckSize - 1 (in order).
+     *
+     * @param deckSize - the number of cards in a full deck.
+     */
+    public Deck(int deckSize) {
+        cards = new int[deckSize];
+        for (int card = Num.ZERO.value; card < deckSize; ++card)
+            cards[card] = card;
+        size = deckSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == Num.ZERO.value;
+    }
+
+    /**
+     * Removes the card at the top of the deck.
+     *
+     * @return - the card id.
+     * @pre - the deck is not empty.
+     */
+    public int draw() {
+        return cards[--size];
+    }
+
+    /**
+     * Returns a card to the top of the deck.
+     *
+     * @param card - the card id.
+     * @pre - the card is not in the deck.
+     */
+    public void add(int card) {
+        cards[size++] = card;
+    }
+
+    /**
+     * Shuffles the cards in the deck (Fisher-Yates).
+     *
+     * @param random - the source of randomness.
+     */
+    public void shuffle(Random random) {
+        for (int i = size - 1; i > Num.ZERO.value; --i) {
+            int j = random.nextInt(i + 1);
+            int card = cards[i];
+            cards[i] = cards[j];
+            cards[j] = card;
+        }
+    }
+
+    /**
+     * Returns the backing array of the deck without copying it. Only the first size() entries are cards in the
+     * deck, and the array must not be modified by the caller.
+     *
+     * @return - the backing array.
+     */
+    public int[] cards() {
+        return cards;
+    }
+}
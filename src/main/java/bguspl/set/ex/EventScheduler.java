@@ -0,0 +1,116 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.ex.Dealer.Num;
+
+import java.util.PriorityQueue;
+
+/**
+ * A queue of timed events that are run by the dealer thread. Between events the dealer parks on its claim inbox,
+ * so it only wakes up when an event is due or a claim arrives. Events may be scheduled by any thread.
+ */
+public class EventScheduler {
+
+    /**
+     * A scheduled event (used as a handle for cancelling it).
+     */
+    public static final class Event implements Comparable<Event> {
+
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time) return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * The pending events, ordered by time (and by scheduling order for equal times).
+     */
+    private final PriorityQueue<Event> events;
+
+    /**
+     * The inbox the dealer parks on while waiting for the next event.
+     */
+    private final ClaimQueue inbox;
+
+    private final Clock clock;
+
+    private long sequence;
+
+    public EventScheduler(ClaimQueue inbox, Clock clock) {
+        this.inbox = inbox;
+        this.clock = clock;
+        this.events = new PriorityQueue<>();
+    }
+
+    /**
+     * Schedules an action to run on the dealer thread at the given time.
+     *
+     * @param time   - the time to run the action at (in the clock's terms).
+     * @param action - the action to run.
+     * @return - a handle for cancelling the event.
+     */
+    public synchronized Event schedule(long time, Runnable action) {
+        Event event = new Event(time, sequence++, action);
+        events.add(event);
+        // the dealer may be parked, or about to park, until a later event (the wake-up then ends its next wait)
+        if (events.peek() == event) inbox.wakeUp();
+        return event;
+    }
+
+    /**
+     * Cancels a scheduled event (does nothing if it already ran or was cancelled).
+     *
+     * @param event - the handle returned by schedule (may be null).
+     */
+    public synchronized void cancel(Event event) {
+        if (event != null) events.remove(event);
+    }
+
+    /**
+     * Parks the calling thread until the next event is due or a claim arrives in the inbox.
+     * A clock that does not move by itself is told the thread is idle first, so it may skip ahead.
+     * An earlier event scheduled after the next one was read still ends the wait, as it wakes up the inbox.
+     */
+    public void awaitNextEvent() {
+        long time;
+        synchronized (this) {
+            Event next = events.peek();
+            time = next == null ? Long.MAX_VALUE : next.time;
+        }
+        if (!inbox.isEmpty()) return;
+        if (time == Long.MAX_VALUE) {
+            inbox.await(Long.MAX_VALUE);
+            return;
+        }
+        clock.idle(time);
+        long delay = time - clock.currentTimeMillis();
+        if (delay > Num.ZERO.value) inbox.await(clock.toNanos(delay));
+    }
+
+    /**
+     * Runs all the events whose time has come, in order.
+     */
+    public void runDueEvents() {
+        long now = clock.currentTimeMillis();
+        while (true) {
+            Event event;
+            synchronized (this) {
+                event = events.peek();
+                if (event == null || event.time > now) return;
+                events.poll();
+            }
+            event.action.run();
+        }
+    }
+}
@@ -3,6 +3,10 @@ package bguspl.set.ex;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import bguspl.set.ThreadLogger;
 
 import bguspl.set.Env;
 import bguspl.set.ex.Dealer.Num;
@@ -56,23 +60,60 @@ public class Player implements Runnable {
     private volatile boolean terminate;
 
     /**
-     * The current score of the player.
+     * The current score of the player (changed only by the player thread, read by other threads).
      */
-    private int score;
+    private volatile int score;
     
     /**
      * 
      */
     private volatile BlockingQueue<Integer> actions;
 
-    private int OneHundredMillis = 100;
+    /**
+     * True from the moment the player submits a set until the dealer notifies the result.
+     */
+    private boolean awaitingResult;
+
+    /**
+     * Guards the waiting of the player and AI threads (used instead of the object monitor so that virtual threads
+     * are not pinned to their carrier while waiting).
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Signalled whenever something a waiting player or AI thread depends on changes: an action was added or taken,
+     * the dealer sent a result, the freeze ended or the game is terminating.
+     */
+    private final Condition stateChanged;
+
+    /**
+     * Counts the signals of stateChanged, so the AI thread can wait for the next change without missing one.
+     */
+    private long changes;
+
+    /**
+     * True while the player thread is handling an action it took from the queue.
+     */
+    private volatile boolean executing;
+
+    /**
+     * The key presses of a computer player that follows a ReactionProfile are scheduled on env.aiScheduler instead of
+     * a thread of its own. aiScheduled is true while a key press is scheduled, and aiIdle while none is scheduled
+     * until the next change of state (both guarded by lock).
+     */
+    private Strategy strategy;
+    private ReactionProfile profile;
+    private Random random;
+    private boolean aiScheduled;
+    private boolean aiIdle;
+
     public enum State {
         Free,
         Point,
         Penalty
     }
 
-    State freezeState;
+    volatile State freezeState;
 
     /**
      * The class constructor.
@@ -91,6 +132,8 @@ public class Player implements Runnable {
         this.human = human;
         freezeState = State.Free;
         this.actions = new ArrayBlockingQueue<Integer>(env.config.featureSize);
+        this.lock = new ReentrantLock();
+        this.stateChanged = lock.newCondition();
     }
 
     /**
@@ -102,9 +145,7 @@ public class Player implements Runnable {
         if (!human) createArtificialIntelligence();
         playerThread = Thread.currentThread();
         while (!terminate) {
-            if (human) {
-                waitForAction();
-            }
+            waitForAction();
             while (shouldExecuteAction()) {
                 boolean succeded = executeAction();
                 if (succeded && table.playerHasMaxTokens(id)) {
@@ -113,45 +154,127 @@ public class Player implements Runnable {
                     acceptDealerResult();
                 }
             }
-            if (!human) {
-                notifyAiThreads();
-            }
         }
         
-        if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        if (aiThread != null) try {
+            signalStateChanged();
+            aiThread.join();
+        } catch (InterruptedException ignored) {}
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly asks the
+     * player's Strategy for a key to press. If the queue of key presses is full or the player is frozen, or the
+     * strategy has nothing to press, the thread waits until the state of the player changes.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        strategy = Strategy.create(env, table, id);
+        profile = new ReactionProfile(env.config);
+        random = new Random();
+        if (profile.enabled()) {
+            lock.lock();
+            try {
+                scheduleKeyPress(profile.reactionMillis(random));
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        aiThread = ThreadLogger.newThread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
             while (!terminate) {
-                Random random = new Random();
                 try {
-                    synchronized (aiThread) { 
-                        aiThread.wait();
-                        if (shouldAllowOffer()) {
-                            actions.offer(random.nextInt(table.getTableSize()));
+                    long seen;
+                    lock.lock();
+                    try {
+                        while (!terminate && !shouldGenerateAction()) stateChanged.await();
+                        seen = changes;
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (terminate) break;
+                    int slot = strategy.nextKey(actions.size() + (executing ? Num.ONE.value : Num.ZERO.value));
+                    if (slot == Strategy.NONE) {
+                        lock.lock();
+                        try {
+                            while (!terminate && changes == seen) stateChanged.await();
+                        } finally {
+                            lock.unlock();
                         }
-
+                    }
+                    else if (actions.offer(slot)) {
+                        signalStateChanged();
                     }
                 } catch (InterruptedException ignored) {}
             }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
+        }, "computer-" + id, env.config.virtualThreads);
         aiThread.start();
     }
 
+    /**
+     * Schedules the next key press of a computer player that follows a ReactionProfile. Called with the lock held.
+     *
+     * @param delayMillis - the time until the key press.
+     */
+    private void scheduleKeyPress(long delayMillis) {
+        if (aiScheduled || terminate) return;
+        aiScheduled = true;
+        aiIdle = false;
+        env.aiScheduler.schedule(this::pressScheduledKey, delayMillis);
+    }
+
+    /**
+     * Presses the next key of a computer player that follows a ReactionProfile, and schedules the key after it: right
+     * after the typing interval if there are more keys to press, or after a reaction time once the state of the
+     * player changes. Runs on env.aiScheduler.
+     */
+    private void pressScheduledKey() {
+        long seen;
+        lock.lock();
+        try {
+            aiScheduled = false;
+            if (terminate) return;
+            if (!shouldGenerateAction()) {
+                aiIdle = true;
+                return;
+            }
+            // wait for the dealer to finish with the table (a simulated clock runs the key presses on the dealer's
+            // own thread)
+            if (table.isBusy()) {
+                scheduleKeyPress(Math.max(Num.ONE.value, profile.reactionMillis(random)));
+                return;
+            }
+            seen = changes;
+        } finally {
+            lock.unlock();
+        }
+
+        int slot = strategy.nextKey(actions.size() + (executing ? Num.ONE.value : Num.ZERO.value));
+        if (slot != Strategy.NONE && profile.mistake(random)) slot = random.nextInt(table.getTableSize());
+        boolean pressed = slot != Strategy.NONE && actions.offer(slot);
+
+        lock.lock();
+        try {
+            if (pressed) {
+                scheduleKeyPress(profile.keyIntervalMillis());
+                changed();
+            }
+            else if (changes != seen) scheduleKeyPress(profile.reactionMillis(random));
+            else aiIdle = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Called when the game should be terminated.
      */
     public void terminate() {
         terminate = true;
+        signalStateChanged();
     }
 
     /**
@@ -165,15 +288,11 @@ public class Player implements Runnable {
                 env.logger.warning("error: trying to press a key while blocked");
                 return;
             }
-            try {
-                synchronized (actions) {
-                    actions.put(slot);
-                }
-                synchronized (this) 
-                { 
-                    notifyAll(); 
-                }
-            } catch (InterruptedException ignored) {}
+            if (!actions.offer(slot)) {
+                env.logger.warning("error: too many keys pressed before the previous ones were handled");
+                return;
+            }
+            signalStateChanged();
         }
         else {
             env.logger.warning("error: trying to press a key on a computer player");
@@ -184,10 +303,12 @@ public class Player implements Runnable {
         * Execute the next action in the queue.
         */
     private boolean executeAction() {
-        synchronized (actions) {
-            int slot = actions.poll();
-            return table.placeOrRemoveToken(id, slot);
-        }
+        executing = true;
+        int slot = actions.poll();
+        boolean done = table.placeOrRemoveToken(id, slot);
+        executing = false;
+        if (!human) signalStateChanged();
+        return done;
     }
 
     /**
@@ -198,43 +319,51 @@ public class Player implements Runnable {
      */
     public void point() {
         env.ui.setScore(id, ++score);
-        long freezeTime = System.currentTimeMillis() + env.config.pointFreezeMillis;
-        while (System.currentTimeMillis() < freezeTime) {
-            env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
-            try {
-                Thread.sleep(OneHundredMillis);
-            } catch (InterruptedException ignored) {}
-        }
-        env.ui.setFreeze(id, Num.ZERO.value);
-        freezeState = State.Free;
-        // int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+        env.metrics.frozen(env.config.pointFreezeMillis);
+        updateFreeze(env.clock.currentTimeMillis() + env.config.pointFreezeMillis);
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        long freezeTime = System.currentTimeMillis() + env.config.penaltyFreezeMillis;
-        while (System.currentTimeMillis() < freezeTime) {
-            env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
+        env.metrics.frozen(env.config.penaltyFreezeMillis);
+        updateFreeze(env.clock.currentTimeMillis() + env.config.penaltyFreezeMillis);
+    }
+
+    /**
+     * Shows the remaining freeze time and schedules the next update on the dealer's freeze timer, or frees the
+     * player if the freeze is over. The player thread does not wait for the freeze to end.
+     *
+     * @param freezeEnd - the time at which the player is free again.
+     */
+    private void updateFreeze(long freezeEnd) {
+        long remaining = freezeEnd - env.clock.currentTimeMillis();
+        if (remaining > Num.ZERO.value) {
+            env.ui.setFreeze(id, remaining);
+            // update again when the remaining time reaches the previous multiple of the refresh interval
+            long refresh = Math.max(Num.ONE.value, env.config.freezeRefreshMillis);
+            long next = (remaining - Num.ONE.value) / refresh * refresh;
+            dealer.schedule(() -> updateFreeze(freezeEnd), remaining - next);
+        }
+        else {
+            env.ui.setFreeze(id, Num.ZERO.value);
+            lock.lock();
             try {
-                Thread.sleep(OneHundredMillis);
-            } catch (InterruptedException ignored) {}
+                freezeState = State.Free;
+                changed();
+            } finally {
+                lock.unlock();
+            }
         }
-        freezeState = State.Free;
-        env.ui.setFreeze(id, Num.ZERO.value);
     }
 
     public int score() {
         return score;
     }
     
-    public void setFreezeState(State state) {
-        freezeState = state;
-    }
-
     public boolean shouldExecuteAction() {
-        return !actions.isEmpty() && table.isBusy() == false;
+        return !actions.isEmpty() && freezeState == State.Free;
     }
 
     public boolean shouldAllowOffer() {
@@ -242,11 +371,17 @@ public class Player implements Runnable {
                 && table.isBusy() == false;
     }
 
+    private boolean shouldGenerateAction() {
+        return freezeState == State.Free && !awaitingResult && actions.remainingCapacity() > Num.ZERO.value;
+    }
+
     private void waitForAction() {
-        while (actions.isEmpty() && !terminate) {
-            try {
-                synchronized (this) { wait(); }
-            } catch (InterruptedException ignored) {}
+        lock.lock();
+        try {
+            while (!shouldExecuteAction() && !terminate) stateChanged.await();
+        } catch (InterruptedException ignored) {
+        } finally {
+            lock.unlock();
         }
     }
         
@@ -257,31 +392,63 @@ public class Player implements Runnable {
         else if (freezeState == State.Penalty) {
             penalty();
         }
-        synchronized (this) { notifyAll(); }
+        signalStateChanged();
     }
 
-    private void notifyAiThreads() {
-        synchronized (aiThread) {
-            aiThread.notifyAll();
+    private void signalStateChanged() {
+        lock.lock();
+        try {
+            changed();
+        } finally {
+            lock.unlock();
         }
     }
+
+    /**
+     * Signals stateChanged. Called with the lock held.
+     */
+    private void changed() {
+        ++changes;
+        stateChanged.signalAll();
+        if (aiIdle) scheduleKeyPress(profile.reactionMillis(random));
+    }
     private void waitForDealerResult() {
-        if (freezeState == State.Free) {
-            try {
-                synchronized (this) { wait(); }
-            }
-            catch (InterruptedException ignored) {}
+        lock.lock();
+        try {
+            while (awaitingResult && !terminate) stateChanged.await();
+        }
+        catch (InterruptedException ignored) {
+        } finally {
+            lock.unlock();
         }
     }
     private void deliverSetToDealer() {
         env.logger.info("player " + id + " has placed all tokens");
         int[] slots = table.getPlayerSlots(id);
         CardSet set = new CardSet(slots, id);
+        lock.lock();
+        try {
+            awaitingResult = true;
+        } finally {
+            lock.unlock();
+        }
         dealer.addSetToCheck(set);
     }
 
-    public void notifyResult() {
-        synchronized (this) { notifyAll(); }
+    /**
+     * Called by the dealer when it finished checking the set the player submitted.
+     *
+     * @param result - Point or Penalty (the player is frozen accordingly), or Free if the set was not checked.
+     */
+    public void notifyResult(State result) {
+        lock.lock();
+        try {
+            freezeState = result;
+            awaitingResult = false;
+            changed();
+        } finally {
+            lock.unlock();
+        }
     }
         
 }
@@ -0,0 +1,22 @@
+package bguspl.set.ex;
+
+import java.util.Random;
+
+/**
+ * Presses random keys.
+ */
+public class RandomStrategy implements Strategy {
+
+    private final Table table;
+    private final Random random;
+
+    public RandomStrategy(Table table) {
+        this.table = table;
+        random = new Random();
+    }
+
+    @Override
+    public int nextKey(int pending) {
+        return random.nextInt(table.getTableSize());
+    }
+}
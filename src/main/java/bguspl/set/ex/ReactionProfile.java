@@ -0,0 +1,61 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.ex.Dealer.Num;
+
+import java.util.Random;
+
+/**
+ * The timing of a computer player that imitates a person: a reaction time before acting on a change (an
+ * ex-Gaussian: a normal distribution plus an exponential tail, the usual model of human reaction times), a limited
+ * typing speed and a rate of wrong keys.
+ */
+public class ReactionProfile {
+
+    private final long reactionMillis;
+    private final long jitterMillis;
+    private final long tailMillis;
+    private final double errorRate;
+    private final long keyIntervalMillis;
+    private final boolean enabled;
+
+    public ReactionProfile(Config config) {
+        reactionMillis = config.aiReactionMillis;
+        jitterMillis = config.aiReactionJitterMillis;
+        tailMillis = config.aiReactionTailMillis;
+        errorRate = config.aiErrorRate;
+        keyIntervalMillis = config.aiKeysPerSecond > Num.ZERO.value ? (long) (1000.0 / config.aiKeysPerSecond) : Num.ZERO.value;
+        enabled = reactionMillis > Num.ZERO.value || jitterMillis > Num.ZERO.value || tailMillis > Num.ZERO.value
+                || errorRate > Num.ZERO.value || keyIntervalMillis > Num.ZERO.value;
+    }
+
+    /**
+     * @return - true iff the computer players should follow the profile (otherwise they press as fast as they can).
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return - a random reaction time, in milliseconds (never negative).
+     */
+    public long reactionMillis(Random random) {
+        double millis = reactionMillis + random.nextGaussian() * jitterMillis;
+        if (tailMillis > Num.ZERO.value) millis -= Math.log(1.0 - random.nextDouble()) * tailMillis;
+        return Math.max(Num.ZERO.value, Math.round(millis));
+    }
+
+    /**
+     * @return - the time between two keys pressed in a row, in milliseconds.
+     */
+    public long keyIntervalMillis() {
+        return keyIntervalMillis;
+    }
+
+    /**
+     * @return - true iff the next key should be a wrong one.
+     */
+    public boolean mistake(Random random) {
+        return errorRate > Num.ZERO.value && random.nextDouble() < errorRate;
+    }
+}
@@ -0,0 +1,87 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.ex.Dealer.Num;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Looks for a legal set on the table and claims it: takes a consistent snapshot of the cards, picks one of the sets
+ * in it at random (so computer players do not all go for the same set), then presses the keys that remove the
+ * player's other tokens and place tokens on exactly the cards of the set. A plan is only made once the earlier key
+ * presses were handled, and is dropped if the dealer replaced one of its cards. When there is no set on the table the
+ * player presses random keys, like a human looking around.
+ */
+public class SetSeekingStrategy implements Strategy {
+
+    private final Env env;
+    private final Table table;
+    private final int player;
+    private final Random random;
+
+    private final int[] cards;     // the snapshot of the table: the card in each slot
+    private final int[] present;   // the cards of the snapshot, without the empty slots
+    private final int[] planSlots; // the keys to press, and the card expected in each of their slots
+    private final int[] planCards;
+    private int planSize;
+    private int planNext;
+
+    public SetSeekingStrategy(Env env, Table table, int player) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        random = new Random();
+        cards = new int[env.config.tableSize];
+        present = new int[env.config.tableSize];
+        planSlots = new int[env.config.tableSize];
+        planCards = new int[env.config.tableSize];
+    }
+
+    @Override
+    public int nextKey(int pending) {
+        if (planNext < planSize && table.getCard(planSlots[planNext]) != planCards[planNext])
+            planSize = planNext = Num.ZERO.value; // the dealer changed the table under the plan
+        if (planNext == planSize) {
+            if (pending > Num.ZERO.value) return NONE; // the tokens are not settled yet
+            if (!plan()) return random.nextInt(table.getTableSize());
+            if (planSize == Num.ZERO.value) return NONE; // the tokens are already on a set
+        }
+        return planSlots[planNext++];
+    }
+
+    /**
+     * Plans the key presses that claim a set on the table.
+     *
+     * @return - false iff there is no set on the table.
+     */
+    private boolean plan() {
+        planSize = planNext = Num.ZERO.value;
+        table.snapshotCards(cards);
+        int n = Num.ZERO.value;
+        for (int card : cards)
+            if (card != Num.NegONE.value) present[n++] = card;
+        List<int[]> sets = env.util.findSets(present, n, Integer.MAX_VALUE);
+        if (sets.isEmpty()) return false;
+        int[] set = sets.get(random.nextInt(sets.size()));
+
+        // first take the tokens off the other cards, so there is room for the tokens of the set
+        for (int slot = Num.ZERO.value; slot < cards.length; slot++)
+            if (table.hasToken(player, slot) && !contains(set, cards[slot])) addToPlan(slot);
+        for (int slot = Num.ZERO.value; slot < cards.length; slot++)
+            if (!table.hasToken(player, slot) && contains(set, cards[slot])) addToPlan(slot);
+        return true;
+    }
+
+    private void addToPlan(int slot) {
+        planSlots[planSize] = slot;
+        planCards[planSize] = cards[slot];
+        planSize++;
+    }
+
+    private static boolean contains(int[] set, int card) {
+        for (int c : set)
+            if (c == card) return true;
+        return false;
+    }
+}
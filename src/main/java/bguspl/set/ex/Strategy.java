@@ -0,0 +1,43 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * Chooses the key presses of a computer player. Every computer player has its own strategy object, called by one
+ * thread at a time (its AI thread, or the timer that presses its keys).
+ */
+public interface Strategy {
+
+    /**
+     * The value of nextKey when the strategy has nothing to press until the state of the player changes.
+     */
+    int NONE = -1;
+
+    /**
+     * Chooses the next key to press.
+     *
+     * @param pending - the number of keys pressed earlier that the player did not handle yet.
+     * @return - the slot of the key to press, or NONE.
+     */
+    int nextKey(int pending);
+
+    /**
+     * Creates the strategy named by config.computerStrategy for a computer player.
+     *
+     * @param env    - the environment object.
+     * @param table  - the table object.
+     * @param player - the id of the player.
+     * @return - the strategy (random if the name is unknown).
+     */
+    static Strategy create(Env env, Table table, int player) {
+        switch (env.config.computerStrategy) {
+            case "sets":
+                return new SetSeekingStrategy(env, table, player);
+            case "random":
+                return new RandomStrategy(table);
+            default:
+                env.logger.warning("unknown computer strategy " + env.config.computerStrategy + ", using random");
+                return new RandomStrategy(table);
+        }
+    }
+}
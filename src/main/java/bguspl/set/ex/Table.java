@@ -5,10 +5,10 @@ import bguspl.set.ex.Dealer.Num;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
 
 /**
@@ -34,11 +34,48 @@ public class Table {
     protected final Integer[] cardToSlot; // slot per card (if any)
 
     /**
-     * Mapping between a slot and the player's id if a token is placed in it (null if none).
+     * Mapping between a slot and the players that have a token placed in it: bit (player % 64) of word
+     * (slot * playerWords + player / 64) is set iff the player has a token on the slot.
      */
-    protected volatile Set<Integer>[] slotToPlayerToken; // player token per slot (if any)
+    protected final AtomicLongArray slotToPlayerTokens; // player tokens per slot
 
-    private boolean isBusy;
+    /**
+     * Mapping between a player and the slots it has placed tokens on: bit (slot % 64) of word
+     * (player * slotWords + slot / 64) is set iff the player has a token on the slot.
+     */
+    protected final AtomicLongArray playerToSlotTokens; // slot tokens per player
+
+    /**
+     * The number of tokens each player currently has on the table.
+     */
+    protected final AtomicIntegerArray playerTokenCount;
+
+    /**
+     * The number of 64 bit words per slot in slotToPlayerTokens and per player in playerToSlotTokens.
+     */
+    private final int playerWords;
+    private final int slotWords;
+
+    /**
+     * The legal sets among the cards currently on the table (kept up to date by placeCard and removeCard).
+     */
+    private final List<int[]> setsOnTable;
+
+    /**
+     * Guards the cards on the table: players hold a read stamp while placing or removing tokens (so they can do it
+     * in parallel), the dealer holds the write stamp while it removes or replaces cards.
+     */
+    private final StampedLock lock;
+
+    /**
+     * The write stamp held by the dealer between lockTable and unlockTable.
+     */
+    private long writeStamp;
+
+    /**
+     * The time the dealer took the write stamp, for the metrics (0 if the metrics are disabled).
+     */
+    private long lockedNanos;
 
     /**
      * Constructor for testing.
@@ -47,16 +84,17 @@ public class Table {
      * @param slotToCard - mapping between a slot and the card placed in it (null if none).
      * @param cardToSlot - mapping between a card and the slot it is in (null if none).
      */
-    @SuppressWarnings("unchecked")
     public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        slotToPlayerToken = new Set[env.config.tableSize];
-        for (int i = Num.ZERO.value; i < env.config.tableSize; i++) {
-            slotToPlayerToken[i] = new HashSet<>();
-        }        
-        this.isBusy = false;
+        playerWords = (env.config.players + Long.SIZE - Num.ONE.value) / Long.SIZE;
+        slotWords = (env.config.tableSize + Long.SIZE - Num.ONE.value) / Long.SIZE;
+        slotToPlayerTokens = new AtomicLongArray(env.config.tableSize * playerWords);
+        playerToSlotTokens = new AtomicLongArray(env.config.players * slotWords);
+        playerTokenCount = new AtomicIntegerArray(env.config.players);
+        this.setsOnTable = new ArrayList<>();
+        this.lock = new StampedLock();
     }
 
     /**
@@ -73,8 +111,7 @@ public class Table {
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        setsOnTable.forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
@@ -82,6 +119,15 @@ public class Table {
         });
     }
 
+    /**
+     * Checks if there is at least one legal set among the cards currently on the table.
+     *
+     * @return - true iff a legal set can be formed from the cards on the table.
+     */
+    public boolean hasSets() {
+        return !setsOnTable.isEmpty();
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -104,11 +150,12 @@ public class Table {
      */
     public void placeCard(int card, int slot) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            env.clock.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        addSetsWith(card);
         env.ui.placeCard(card, slot);
     }
 
@@ -116,9 +163,9 @@ public class Table {
      * Removes a card from a grid slot on the table.
      * @param slot - the slot from which to remove the card.
      */
-    public synchronized void removeCard(int slot) {
+    public void removeCard(int slot) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            env.clock.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
         removeAllTokens(slot);
@@ -126,14 +173,100 @@ public class Table {
         int card = slotToCard[slot];
         slotToCard[slot] = null;
         cardToSlot[card] = null;
+        removeSetsWith(card);
         env.ui.removeCard(slot);
     }
 
-    public synchronized boolean placeOrRemoveToken(int player, int slot) {
-        if (samePlayerTokenOnSlot(player, slot)) {
-            return removeToken(player, slot);
-        } else {
-            return placeToken(player, slot);
+    /**
+     * Adds to the index every legal set formed by a newly placed card and the other cards on the table.
+     * @param card - the card that was placed on the table.
+     */
+    private void addSetsWith(int card) {
+        int[] others = new int[slotToCard.length];
+        int n = Num.ZERO.value;
+        for (Integer other : slotToCard)
+            if (other != null && other != card)
+                others[n++] = other;
+
+        // with 3 cards per set, the new card and any other card determine the third card
+        if (env.config.featureSize == Num.THREE.value) {
+            addCompletedSetsWith(card, others, n);
+            return;
+        }
+
+        // test every combination of featureSize - 1 other cards together with the new card
+        int r = env.config.featureSize - Num.ONE.value;
+        if (r < Num.ONE.value || n < r) return;
+        int[] combination = new int[r];
+        int[] cards = new int[r + Num.ONE.value];
+        for (int i = Num.ZERO.value; i < r; ++i)
+            combination[i] = i;
+        cards[r] = card;
+
+        while (combination[r - 1] < n) {
+            for (int i = Num.ZERO.value; i < r; ++i)
+                cards[i] = others[combination[i]];
+            if (env.util.testSet(cards)) {
+                int[] set = cards.clone();
+                Arrays.sort(set);
+                setsOnTable.add(set);
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+    }
+
+    /**
+     * Adds to the index the sets of a newly placed card by completing it with each other card on the table and
+     * looking the third card up (for config.featureSize == 3).
+     * @param card   - the card that was placed on the table.
+     * @param others - the other cards on the table.
+     * @param n      - the number of entries of others to use.
+     */
+    private void addCompletedSetsWith(int card, int[] others, int n) {
+        for (int i = Num.ZERO.value; i < n; ++i) {
+            int third = env.util.thirdCard(card, others[i]);
+            // each set is found from both of its other cards, so add it only from the lower one
+            if (third > others[i] && third < cardToSlot.length && cardToSlot[third] != null) {
+                int[] set = {card, others[i], third};
+                Arrays.sort(set);
+                setsOnTable.add(set);
+            }
+        }
+    }
+
+    /**
+     * Removes from the index every set that contains a card that was taken off the table.
+     * @param card - the card that was removed from the table.
+     */
+    private void removeSetsWith(int card) {
+        setsOnTable.removeIf(set -> Arrays.stream(set).anyMatch(c -> c == card));
+    }
+
+    /**
+     * Places a player token on a grid slot, or removes it if the player already has a token there. Waits while the
+     * dealer has the table locked.
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot on which to place or from which to remove the token.
+     * @return       - true iff a token was successfully placed or removed.
+     */
+    public boolean placeOrRemoveToken(int player, int slot) {
+        long stamp;
+        try {
+            stamp = lock.readLockInterruptibly();
+        } catch (InterruptedException ignored) {
+            return false;
+        }
+        try {
+            boolean done = samePlayerTokenOnSlot(player, slot) ? removeToken(player, slot) : placeToken(player, slot);
+            if (done) env.metrics.tokenOp();
+            return done;
+        } finally {
+            lock.unlockRead(stamp);
         }
     }
 
@@ -143,19 +276,19 @@ public class Table {
      * @param slot   - the slot on which to place the token.
      */
     public boolean placeToken(int player, int slot) {
-        synchronized (slotToPlayerToken[slot]){       
-            if (!slotHasCard(slot)) {
-                env.logger.warning("error: trying to place a token on an empty slot");
-                return false;
-            }
-            if (playerHasMaxTokens(player)) {
-                env.logger.warning("error: trying to place a token when the player already has the maximum number of tokens");
-                return false;
-            }
-                slotToPlayerToken[slot].add(player);
-                env.ui.placeToken(player, slot);
-                return true;
+        if (!slotHasCard(slot)) {
+            env.logger.warning("error: trying to place a token on an empty slot");
+            return false;
         }
+        if (playerHasMaxTokens(player)) {
+            env.logger.warning("error: trying to place a token when the player already has the maximum number of tokens");
+            return false;
+        }
+        setBit(slotToPlayerTokens, slot * playerWords + player / Long.SIZE, 1L << player);
+        setBit(playerToSlotTokens, player * slotWords + slot / Long.SIZE, 1L << slot);
+        playerTokenCount.incrementAndGet(player);
+        env.ui.placeToken(player, slot);
+        return true;
     }
 
     /**
@@ -165,15 +298,35 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        synchronized (slotToPlayerToken[slot]){
-            if (slotToCard[slot] == null) {
-                env.logger.warning("error: trying to remove a token from an empty slot");
-                return false;
-            }
-            slotToPlayerToken[slot].remove(player);
-            env.ui.removeToken(player, slot);
-            return true;
+        if (slotToCard[slot] == null) {
+            env.logger.warning("error: trying to remove a token from an empty slot");
+            return false;
         }
+        if (!samePlayerTokenOnSlot(player, slot))
+            return false;
+        clearToken(player, slot);
+        env.ui.removeToken(player, slot);
+        return true;
+    }
+
+    private void clearToken(int player, int slot) {
+        clearBit(slotToPlayerTokens, slot * playerWords + player / Long.SIZE, 1L << player);
+        clearBit(playerToSlotTokens, player * slotWords + slot / Long.SIZE, 1L << slot);
+        playerTokenCount.decrementAndGet(player);
+    }
+
+    private static void setBit(AtomicLongArray words, int index, long bit) {
+        long word;
+        do {
+            word = words.get(index);
+        } while (!words.compareAndSet(index, word, word | bit));
+    }
+
+    private static void clearBit(AtomicLongArray words, int index, long bit) {
+        long word;
+        do {
+            word = words.get(index);
+        } while (!words.compareAndSet(index, word, word & ~bit));
     }
 
     public int getTableSize() { 
@@ -187,6 +340,30 @@ public class Table {
         return slotToCard[slot];
     }
     
+    /**
+     * Copies the cards on the table as one consistent view (taken while the dealer is not changing the table).
+     * @param cards - an array of config.tableSize entries, filled with the card in each slot (-1 if none).
+     */
+    public void snapshotCards(int[] cards) {
+        long stamp = lock.tryOptimisticRead();
+        collectCards(cards);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                collectCards(cards);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private void collectCards(int[] cards) {
+        for (int slot = Num.ZERO.value; slot < cards.length; slot++) {
+            Integer card = slotToCard[slot];
+            cards[slot] = card == null ? Num.NegONE.value : card;
+        }
+    }
+
     public ArrayList<Integer> GetEmptySlots() {
         ArrayList<Integer> emptySlots = new ArrayList<>();
         for (int i = Num.ZERO.value; i < slotToCard.length; i++){
@@ -201,26 +378,46 @@ public class Table {
     }
 
     private boolean samePlayerTokenOnSlot(int player, int slot) {
-        return slotToPlayerToken[slot] != null && slotToPlayerToken[slot].contains(player);
+        return (playerToSlotTokens.get(player * slotWords + slot / Long.SIZE) & 1L << slot) != Num.ZERO.value;
+    }
+
+    /**
+     * @return - true iff the player has a token on the slot.
+     */
+    public boolean hasToken(int player, int slot) {
+        return samePlayerTokenOnSlot(player, slot);
     }
+
     public boolean playerHasMaxTokens(int player) {
-        int tokens = Num.ZERO.value;
+        return playerTokenCount.get(player) == env.config.featureSize;
+    }
 
-        for (int i = Num.ZERO.value; i < slotToPlayerToken.length; i++) {
-            if (slotToPlayerToken[i] != null && slotToPlayerToken[i].contains(player)) {
-                tokens++;
+    /**
+     * Returns the slots on which the player has tokens. Reads optimistically and retries under a read stamp if
+     * the dealer changed the table in the meantime.
+     * @param player - the player the tokens belong to.
+     * @return       - an array of config.featureSize slots (padded with zeros if the player has fewer tokens).
+     */
+    public int[] getPlayerSlots(int player) {
+        long stamp = lock.tryOptimisticRead();
+        int[] slots = collectPlayerSlots(player);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slots = collectPlayerSlots(player);
+            } finally {
+                lock.unlockRead(stamp);
             }
         }
-        return tokens == env.config.featureSize;
+        return slots;
     }
 
-    public int[] getPlayerSlots(int player) {
+    private int[] collectPlayerSlots(int player) {
         int[] slots = new int[env.config.featureSize];
         int j = Num.ZERO.value;
-        for (int i = Num.ZERO.value; i < slotToPlayerToken.length; i++) {
-            if (slotToPlayerToken[i] != null && slotToPlayerToken[i].contains(player)) {
-                slots[j++] = i;
-            }
+        for (int w = Num.ZERO.value; w < slotWords; w++) {
+            for (long word = playerToSlotTokens.get(player * slotWords + w); word != Num.ZERO.value && j < slots.length; word &= word - 1)
+                slots[j++] = w * Long.SIZE + Long.numberOfTrailingZeros(word);
         }
         return slots;
     }
@@ -234,34 +431,47 @@ public class Table {
     }
 
     // Check if there is a token of the player on the slots
-    public boolean isLegalSet(int[] slots) {
-        synchronized (slotToPlayerToken) {
-            for (int slot : slots) {
-                if (slotToPlayerToken[slot] == null || slotToPlayerToken[slot].size() == Num.ZERO.value) {
-                    return false;
-                }
+    public boolean isLegalSet(int player, int[] slots) {
+        for (int slot : slots) {
+            if (!samePlayerTokenOnSlot(player, slot)) {
+                return false;
             }
-            return true;
         }
+        return true;
     }
 
     private void removeAllTokens(int slot) {
-        for (int player : slotToPlayerToken[slot]) {
-            env.ui.removeToken(player, slot);
-        }
-        slotToPlayerToken[slot].clear();
+        for (int w = Num.ZERO.value; w < playerWords; w++) {
+            for (long word = slotToPlayerTokens.get(slot * playerWords + w); word != Num.ZERO.value; word &= word - 1) {
+                int player = w * Long.SIZE + Long.numberOfTrailingZeros(word);
+                clearToken(player, slot);
+                env.ui.removeToken(player, slot);
+            }
         }
+    }
     
+    /**
+     * Takes the write stamp of the table, waiting for players that are placing or removing tokens.
+     * Called by the dealer only, and never twice without unlockTable in between.
+     */
     public void lockTable() {
-        isBusy = true;
+        writeStamp = lock.writeLock();
+        lockedNanos = env.metrics.now();
     }
 
+    /**
+     * Releases the write stamp taken by lockTable.
+     */
     public void unlockTable() {
-        isBusy = false;
+        env.metrics.tableUnlocked(lockedNanos);
+        lock.unlockWrite(writeStamp);
     }
 
+    /**
+     * @return - true iff the dealer currently has the table locked.
+     */
     public boolean isBusy() {
-        return isBusy;
+        return lock.isWriteLocked();
     }
 
 }
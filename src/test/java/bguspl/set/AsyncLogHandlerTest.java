@@ -0,0 +1,95 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncLogHandlerTest {
+
+    File file;
+    AsyncLogHandler handler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("async-log", ".log");
+        handler = new AsyncLogHandler(file.getPath());
+        handler.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return record.getLevel() + " " + record.getMessage() + "\n";
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.close();
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private List<String> lines() throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void log_FormatsPatternOnFlush() throws IOException {
+        handler.log(Level.SEVERE, "player {0} placing token on slot {1}", 2, 7, 0);
+        handler.publish(new LogRecord(Level.INFO, "plain record"));
+        handler.log(Level.SEVERE, "{2}{1}{0} {3}", 1, 2, 3);
+        handler.flush();
+
+        List<String> lines = lines();
+        assertEquals(3, lines.size());
+        assertEquals("SEVERE player 2 placing token on slot 7", lines.get(0));
+        assertEquals("INFO plain record", lines.get(1));
+        assertEquals("SEVERE 321 {3}", lines.get(2));
+    }
+
+    @Test
+    void log_TagComesFirst() throws IOException {
+        handler.log(Level.SEVERE, "game 3: ", "removing card from slot {0}", 4, 0, 0);
+        handler.log(Level.SEVERE, "untagged {0}", 5, 0, 0);
+        handler.flush();
+
+        List<String> lines = lines();
+        assertEquals("SEVERE game 3: removing card from slot 4", lines.get(0));
+        assertEquals("SEVERE untagged 5", lines.get(1));
+    }
+
+    @Test
+    void log_BelowHandlerLevelIsDropped() throws IOException {
+        handler.setLevel(Level.WARNING);
+        handler.log(Level.INFO, "dropped {0}", 1, 0, 0);
+        handler.log(Level.SEVERE, "kept {0}", 1, 0, 0);
+        handler.flush();
+
+        List<String> lines = lines();
+        assertEquals(1, lines.size());
+        assertEquals("SEVERE kept 1", lines.get(0));
+    }
+
+    @Test
+    void log_MoreMessagesThanTheRingHolds() throws IOException {
+        int count = 50_000;
+        for (int i = 0; i < count; ++i)
+            handler.log(Level.SEVERE, "message {0}", i, 0, 0);
+        handler.flush();
+
+        List<String> lines = lines();
+        assertEquals(count, lines.size());
+        for (int i = 0; i < count; ++i)
+            assertEquals("SEVERE message " + i, lines.get(i));
+    }
+}
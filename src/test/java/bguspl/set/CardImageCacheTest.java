@@ -0,0 +1,93 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CardImageCacheTest {
+
+    CardImageCache cache;
+    Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getLogger("CardImageCacheTest");
+        logger.setLevel(Level.OFF);
+        cache = new CardImageCache(new Config(logger, cellProperties()), null, 2, 1);
+    }
+
+    private static Properties cellProperties() {
+        Properties properties = new Properties();
+        properties.put("CellWidth", "100");
+        properties.put("CellHeight", "60");
+        return properties;
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void get_LoadsOnceAndScalesToTheCell() {
+        Image image = cache.get(5);
+        assertSame(image, cache.get(5));
+        assertEquals(1, cache.loads());
+        assertEquals(100, image.getWidth(null));
+        assertEquals(60, image.getHeight(null));
+    }
+
+    @Test
+    void get_DrawsCardsWithoutAnImage() {
+        Properties properties = cellProperties();
+        properties.put("FeatureCount", "5");
+        Config config = new Config(logger, properties);
+        CardImageCache drawn = new CardImageCache(config, new CardRenderer(config, new UtilImpl(config)), 2, 1);
+        try {
+            BufferedImage image = (BufferedImage) drawn.get(config.deckSize - 1);
+            assertEquals(100, image.getWidth());
+            assertEquals(60, image.getHeight());
+            assertNotEquals(image.getRGB(50, 30), image.getRGB(0, 0));
+            assertNotNull(drawn.get(CardImageCache.EMPTY_CARD));
+            assertEquals(2, drawn.loads());
+        } finally {
+            drawn.close();
+        }
+    }
+
+    @Test
+    void get_EvictsTheLeastRecentlyUsed() {
+        Image empty = cache.get(CardImageCache.EMPTY_CARD);
+        Image first = cache.get(0);
+        cache.get(1);
+        cache.get(0);
+        cache.get(2); // evicts card 1
+        assertEquals(2, cache.size());
+
+        assertSame(first, cache.get(0));
+        assertSame(empty, cache.get(CardImageCache.EMPTY_CARD));
+        assertEquals(4, cache.loads());
+        assertNotNull(cache.get(1));
+        assertEquals(5, cache.loads());
+    }
+
+    @Test
+    void warmUp_LoadsInTheBackground() throws InterruptedException {
+        cache.warmUp(10, 20);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.size() < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(2, cache.loads());
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,59 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.IntBuffer;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardRendererTest {
+
+    Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getLogger("CardRendererTest");
+        logger.setLevel(Level.OFF);
+    }
+
+    private CardRenderer renderer(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        Config config = new Config(logger, properties);
+        return new CardRenderer(config, new UtilImpl(config));
+    }
+
+    private static IntBuffer pixels(BufferedImage image) {
+        return IntBuffer.wrap(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+    }
+
+    @Test
+    void render_AllCardsOfASmallDeckAreDistinct() {
+        CardRenderer renderer = renderer(4, 4);
+        Set<IntBuffer> images = new HashSet<>();
+        for (int card = 0; card < 256; card++)
+            assertTrue(images.add(pixels(renderer.render(card))), "card " + card + " looks like another card");
+    }
+
+    @Test
+    void render_ShapesAndShadingsOfALargeFeatureAreDistinct() {
+        int size = 11;
+        CardRenderer renderer = renderer(size, 4);
+        Set<IntBuffer> images = new HashSet<>();
+        // the cards of the first color with a single symbol: the shape is the second feature, the shading the last
+        for (int shape = 0; shape < size; shape++)
+            for (int shading = 0; shading < size; shading++) {
+                int card = shape * size * size + shading;
+                assertTrue(images.add(pixels(renderer.render(card))),
+                        "shape " + shape + " with shading " + shading + " looks like another card");
+            }
+    }
+}
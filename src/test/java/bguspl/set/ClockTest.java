@@ -0,0 +1,123 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClockTest {
+
+    @Test
+    void manualClock_RunsTasksInTimeOrderAsItAdvances() {
+        ManualClock clock = new ManualClock(1000);
+        List<String> ran = new ArrayList<>();
+        clock.schedule(() -> ran.add("b@" + clock.currentTimeMillis()), 20);
+        clock.schedule(() -> ran.add("a@" + clock.currentTimeMillis()), 10);
+        clock.schedule(() -> ran.add("c@" + clock.currentTimeMillis()), 20);
+
+        clock.advanceBy(15);
+        assertEquals(1015, clock.currentTimeMillis());
+        assertEquals(1, ran.size());
+
+        clock.advanceTo(1100);
+        assertEquals(1100, clock.currentTimeMillis());
+        assertEquals("[a@1010, b@1020, c@1020]", ran.toString());
+        assertEquals(Long.MAX_VALUE, clock.nextTaskTime());
+    }
+
+    @Test
+    void manualClock_TasksScheduledByTasksRunInTheSameAdvance() {
+        ManualClock clock = new ManualClock(0);
+        List<Long> ran = new ArrayList<>();
+        clock.schedule(() -> {
+            ran.add(clock.currentTimeMillis());
+            clock.schedule(() -> ran.add(clock.currentTimeMillis()), 5);
+        }, 5);
+
+        clock.advanceTo(100);
+        assertEquals("[5, 10]", ran.toString());
+    }
+
+    @Test
+    void manualClock_NeverMovesBackwards() {
+        ManualClock clock = new ManualClock(50);
+        clock.advanceTo(10);
+        assertEquals(50, clock.currentTimeMillis());
+    }
+
+    @Test
+    void manualClock_SleepEndsWhenTheClockIsAdvanced() throws InterruptedException {
+        ManualClock clock = new ManualClock(0);
+        long[] wokeAt = {-1};
+        Thread sleeper = new Thread(() -> {
+            try {
+                clock.sleep(30);
+                wokeAt[0] = clock.currentTimeMillis();
+            } catch (InterruptedException ignored) {}
+        });
+        sleeper.setDaemon(true);
+        sleeper.start();
+        while (sleeper.getState() != Thread.State.WAITING) Thread.yield();
+
+        clock.advanceBy(10);
+        Thread.sleep(50);
+        assertTrue(sleeper.isAlive());
+
+        clock.advanceBy(25);
+        sleeper.join(1000);
+        assertEquals(35, wokeAt[0]);
+    }
+
+    @Test
+    void virtualClock_SleepAndIdleMoveTheClock() throws InterruptedException {
+        VirtualClock clock = new VirtualClock(0);
+        clock.sleep(100);
+        assertEquals(100, clock.currentTimeMillis());
+
+        List<Long> ran = new ArrayList<>();
+        clock.schedule(() -> ran.add(clock.currentTimeMillis()), 50);
+        clock.idle(1000); // stops at the scheduled task
+        assertEquals(150, clock.currentTimeMillis());
+        assertEquals("[150]", ran.toString());
+
+        clock.idle(1000);
+        assertEquals(1000, clock.currentTimeMillis());
+        assertEquals(0, clock.toNanos(500));
+    }
+
+    @Test
+    void acceleratedClock_RunsFasterThanRealTime() throws InterruptedException {
+        AcceleratedClock clock = new AcceleratedClock(10);
+        assertEquals(10_000_000L, clock.toNanos(100));
+
+        long realStart = System.nanoTime();
+        long gameStart = clock.currentTimeMillis();
+        clock.sleep(500);
+        long realMillis = (System.nanoTime() - realStart) / 1_000_000L;
+        long gameMillis = clock.currentTimeMillis() - gameStart;
+
+        assertTrue(gameMillis >= 500, "game time passed: " + gameMillis);
+        assertTrue(realMillis < 400, "real time passed: " + realMillis);
+    }
+
+    @Test
+    void acceleratedClock_RejectsNonPositiveSpeed() {
+        assertThrows(IllegalArgumentException.class, () -> new AcceleratedClock(0));
+    }
+
+    @Test
+    void schedulerOf_ASimulatedClockSchedulesItself() {
+        ManualClock clock = new ManualClock(0);
+        assertSame(clock, Scheduler.of(clock, () -> {
+            throw new AssertionError("the timer is not needed");
+        }));
+
+        Scheduler timer = new TimerScheduler(new SystemClock(), "test-timer");
+        assertSame(timer, Scheduler.of(new SystemClock(), () -> timer));
+    }
+}
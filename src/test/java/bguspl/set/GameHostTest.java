@@ -0,0 +1,157 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    GameHost host;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = properties();
+        properties.put("LogLevel", "OFF");
+        Logger logger = Logger.getLogger("GameHostTest");
+        host = new GameHost(logger, new Config(logger, properties), 2);
+        logger.setLevel(Level.OFF);
+    }
+
+    private Properties properties() {
+        Properties properties = new Properties();
+        properties.put("Simulation", "True");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("FeatureCount", "3");
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("TurnTimeoutSeconds", "5");
+        properties.put("PointFreezeSeconds", "0.1");
+        properties.put("PenaltyFreezeSeconds", "0.1");
+        properties.put("EndGamePauseSeconds", "0");
+        return properties;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        host.shutdown(10_000);
+    }
+
+    @Test
+    void submit_PlaysIndependentGamesToTheEnd() throws Exception {
+        List<Future<GameHost.Result>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            futures.add(host.submit());
+
+        long sets = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            GameHost.Result result = futures.get(i).get();
+            assertEquals(i, result.game);
+            assertEquals(3, result.scores.length);
+            for (int score : result.scores)
+                sets += score;
+        }
+
+        assertEquals(4, host.gamesStarted());
+        assertEquals(4, host.gamesFinished());
+        assertEquals(0, host.gamesRunning());
+        assertEquals(sets, host.setsFound());
+        assertTrue(sets > 0);
+    }
+
+    @Test
+    void submit_HoldsAThousandTablesOpenAtOnce() throws Exception {
+        host.shutdown(10_000);
+        Properties properties = properties();
+        // real time with slow computer players, so the games last until the host shuts down
+        properties.put("Simulation", "False");
+        properties.put("ComputerPlayers", "1");
+        properties.put("AiReactionSeconds", "5");
+        properties.put("TurnTimeoutSeconds", "600");
+        properties.put("VirtualThreads", Boolean.toString(ThreadLogger.virtualThreadsSupported()));
+        Logger logger = Logger.getLogger("GameHostTest");
+        int tables = 1000;
+        host = new GameHost(logger, new Config(logger, properties), tables);
+
+        List<Future<GameHost.Result>> futures = new ArrayList<>();
+        for (int i = 0; i < tables; i++)
+            futures.add(host.submit());
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (host.gamesRunning() < tables && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(tables, host.gamesRunning());
+        assertEquals(0, host.gamesFinished());
+
+        assertTrue(host.shutdown(60_000), "the games did not end after the shutdown");
+        assertEquals(0, host.gamesRunning());
+    }
+
+    @Test
+    void shutdown_EndsTheGamesThatAreStarting() throws Exception {
+        host.shutdown(10_000);
+        Properties properties = properties();
+        properties.put("Simulation", "False");
+        properties.put("AiReactionSeconds", "5");
+        properties.put("TurnTimeoutSeconds", "600");
+        Logger logger = Logger.getLogger("GameHostTest");
+        for (int round = 0; round < 10; round++) {
+            host = new GameHost(logger, new Config(logger, properties), 4);
+            for (int i = 0; i < 4; i++)
+                host.submit();
+            // shut down while the games are being set up
+            assertTrue(host.shutdown(20_000), "a game that was starting kept running");
+        }
+    }
+
+    @Test
+    void submit_EveryLineOfAGameIsTaggedWithTheGame() throws Exception {
+        host.shutdown(10_000);
+        List<String> messages = new CopyOnWriteArrayList<>();
+        Logger logger = Logger.getLogger("GameHostTest.tags");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.ALL);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        host = new GameHost(logger, new Config(logger, properties()), 2);
+        messages.clear();
+
+        Future<GameHost.Result> first = host.submit();
+        Future<GameHost.Result> second = host.submit();
+        first.get();
+        second.get();
+
+        Set<String> games = new HashSet<>();
+        for (String message : messages) {
+            assertTrue(message.matches("game [01]: .*"), message);
+            games.add(message.substring(0, 6));
+        }
+        assertEquals(2, games.size());
+    }
+}
@@ -0,0 +1,289 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+    Path path;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = Files.createTempFile("game", ".journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Records the user interface calls as strings.
+     */
+    static class CallRecorder implements UserInterface {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void placeCard(int card, int slot) {
+            calls.add("placeCard " + card + " " + slot);
+        }
+
+        @Override
+        public void removeCard(int slot) {
+            calls.add("removeCard " + slot);
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            calls.add("placeToken " + player + " " + slot);
+        }
+
+        @Override
+        public void removeTokens() {
+            calls.add("removeTokens");
+        }
+
+        @Override
+        public void removeTokens(int slot) {
+            calls.add("removeTokens " + slot);
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+            calls.add("removeToken " + player + " " + slot);
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            calls.add("setCountdown " + millies + " " + warn);
+        }
+
+        @Override
+        public void setElapsed(long millies) {
+            calls.add("setElapsed " + millies);
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+            calls.add("setFreeze " + player + " " + millies);
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+            calls.add("setScore " + player + " " + score);
+        }
+
+        @Override
+        public void announceWinner(int[] players) {
+            calls.add("announceWinner " + Arrays.toString(players));
+        }
+
+        @Override
+        public void dispose() {
+            calls.add("dispose");
+        }
+    }
+
+    private static void playSomeGame(UserInterface ui, GameJournal journal) {
+        ui.placeCard(80, 11);
+        ui.placeToken(1, 11);
+        ui.placeToken(1, 3);
+        journal.claimSubmitted(1, new int[]{11, 3, 0});
+        journal.claimVerdict(1, 2);
+        ui.removeToken(1, 3);
+        ui.removeTokens(11);
+        ui.removeCard(11);
+        ui.setScore(1, 4);
+        ui.setFreeze(1, 3000);
+        ui.setCountdown(5000, true);
+        ui.setElapsed(1234);
+        journal.reshuffle();
+        ui.removeTokens();
+        ui.announceWinner(new int[]{0, 1});
+    }
+
+    @Test
+    void replay_ReproducesTheRecordedCalls() throws IOException, InterruptedException {
+        CallRecorder live = new CallRecorder();
+        try (GameJournal journal = new GameJournal(path)) {
+            playSomeGame(journal.recording(live), journal);
+        }
+
+        CallRecorder replayed = new CallRecorder();
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            reader.replay(replayed, false);
+        }
+        assertEquals(live.calls, replayed.calls);
+    }
+
+    @Test
+    void next_ReadsClaimsAndVerdicts() throws IOException {
+        try (GameJournal journal = new GameJournal(path)) {
+            playSomeGame(journal.recording(null), journal);
+        }
+        assertEquals(16 + 16 * GameJournal.RECORD_SIZE, Files.size(path));
+
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            GameJournal.Record record = reader.next();
+            while (record.type != GameJournal.Type.ClaimSubmitted)
+                record = reader.next();
+            assertEquals(1, record.player);
+            assertArrayEquals(new int[]{11, 3, 0}, record.claimSlots());
+
+            record = reader.next();
+            assertEquals(GameJournal.Type.ClaimVerdict, record.type);
+            assertEquals(2, record.value);
+
+            int left = 0;
+            while (reader.next() != null)
+                ++left;
+            assertEquals(11, left);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void next_ManyRecordsAcrossBuffers() throws IOException {
+        int count = 100_000;
+        try (GameJournal journal = new GameJournal(path)) {
+            UserInterface ui = journal.recording(null);
+            for (int i = 0; i < count; ++i)
+                ui.setElapsed(i);
+        }
+
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            for (int i = 0; i < count; ++i)
+                assertEquals(i, reader.next().value);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void next_RecordsOfManyThreadsAreInTimeOrder() throws IOException, InterruptedException {
+        int threads = 4, count = 20_000;
+        try (GameJournal journal = new GameJournal(path)) {
+            UserInterface ui = journal.recording(null);
+            Thread[] writers = new Thread[threads];
+            for (int t = 0; t < threads; ++t) {
+                int player = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < count; ++i)
+                        ui.placeToken(player, i);
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers)
+                writer.join();
+        }
+
+        int[] next = new int[threads];
+        long millis = 0;
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            for (GameJournal.Record record = reader.next(); record != null; record = reader.next()) {
+                assertTrue(record.millis >= millis);
+                millis = record.millis;
+                assertEquals(next[record.player]++, record.slot);
+            }
+        }
+        for (int n : next)
+            assertEquals(count, n);
+    }
+
+    @Test
+    void writeError_DisablesTheJournalWithoutThrowing() throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        Logger logger = Logger.getLogger("GameJournalTest");
+        logger.setLevel(Level.OFF);
+        GameJournal journal = new GameJournal(channel, new SystemClock(), logger);
+        channel.close();
+
+        UserInterface ui = journal.recording(null);
+        ui.setElapsed(1);
+        journal.flush();
+        assertFalse(journal.isEnabled());
+        ui.setElapsed(2);
+        journal.flush();
+        journal.close();
+    }
+
+    @Test
+    void reader_RejectsOtherFiles() throws IOException {
+        Files.write(path, "not a journal at all".getBytes());
+        assertThrows(IOException.class, () -> new GameJournal.Reader(path));
+    }
+
+    @Test
+    void next_RejectsARecordOfUnknownType() throws IOException {
+        try (GameJournal journal = new GameJournal(path)) {
+            journal.recording(null).setElapsed(1);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).putShort(0, (short) 1000), 16 + 8);
+        }
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    @Test
+    void open_RejectsGamesWhoseClaimsDoNotFitTheRecords() {
+        Logger logger = Logger.getLogger("GameJournalTest");
+        logger.setLevel(Level.OFF);
+        Properties wideTable = new Properties();
+        wideTable.put("Rows", "20");
+        wideTable.put("Columns", "13");
+        Properties bigSets = new Properties();
+        bigSets.put("FeatureSize", "9");
+        bigSets.put("FeatureCount", "2");
+        for (Properties properties : Arrays.asList(wideTable, bigSets)) {
+            Config config = new Config(logger, properties);
+            assertThrows(IllegalArgumentException.class,
+                    () -> new GameJournal(path, new SystemClock(), logger, config));
+        }
+    }
+
+    @Test
+    void claimSubmitted_RejectsClaimsThatDoNotFitARecord() throws IOException {
+        try (GameJournal journal = new GameJournal(path)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.claimSubmitted(0, new int[]{1, 256, 3}));
+            assertThrows(IllegalArgumentException.class, () -> journal.claimSubmitted(0, new int[9]));
+            journal.claimSubmitted(0, new int[]{255, 0, 7});
+        }
+        try (GameJournal.Reader reader = new GameJournal.Reader(path)) {
+            assertArrayEquals(new int[]{255, 0, 7}, reader.next().claimSlots());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void disabled_RecordsNothing() {
+        GameJournal journal = GameJournal.disabled();
+        CallRecorder ui = new CallRecorder();
+        assertFalse(journal.isEnabled());
+        assertSame(ui, journal.recording(ui));
+        journal.claimSubmitted(0, new int[]{1, 2, 3});
+        journal.reshuffle();
+    }
+}
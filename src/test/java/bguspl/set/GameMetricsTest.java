@@ -0,0 +1,134 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameMetricsTest {
+
+    @Test
+    void disabled_RecordsNothing() {
+        GameMetrics metrics = GameMetrics.disabled();
+        metrics.claimSubmitted();
+        metrics.claimVerdict(Player.State.Point.ordinal(), metrics.now());
+        metrics.tokenOp();
+        metrics.counter("custom").increment();
+        metrics.gauge("gauge", () -> 1);
+
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.now());
+        assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    void snapshot_CountsTheClaimsAndTheirVerdicts() {
+        GameMetrics metrics = new GameMetrics();
+        for (int i = 0; i < 4; i++) metrics.claimSubmitted();
+        long submitted = metrics.now();
+        metrics.claimVerdict(Player.State.Point.ordinal(), submitted);
+        metrics.claimVerdict(Player.State.Penalty.ordinal(), submitted);
+        metrics.claimVerdict(Player.State.Free.ordinal(), submitted);
+        metrics.tokenOp();
+        metrics.reshuffle();
+        metrics.frozen(3000);
+        metrics.tableUnlocked(metrics.now());
+        metrics.gauge("players", () -> 2);
+
+        SortedMap<String, Long> snapshot = metrics.snapshot();
+        assertEquals(4, (long) snapshot.get(GameMetrics.CLAIMS_SUBMITTED));
+        assertEquals(1, (long) snapshot.get(GameMetrics.CLAIMS_ACCEPTED));
+        assertEquals(1, (long) snapshot.get(GameMetrics.CLAIMS_REJECTED));
+        assertEquals(1, (long) snapshot.get(GameMetrics.CLAIMS_UNCHECKED));
+        assertEquals(1, (long) snapshot.get(GameMetrics.CLAIMS_PENDING));
+        assertEquals(3, (long) snapshot.get(GameMetrics.VERIFICATION_NANOS + ".count"));
+        assertEquals(1, (long) snapshot.get(GameMetrics.TOKEN_OPS));
+        assertEquals(1, (long) snapshot.get(GameMetrics.RESHUFFLES));
+        assertEquals(3000, (long) snapshot.get(GameMetrics.FROZEN_MILLIS));
+        assertEquals(1, (long) snapshot.get(GameMetrics.TABLE_LOCK_NANOS + ".count"));
+        assertEquals(2, (long) snapshot.get("players"));
+    }
+
+    @Test
+    void dumpTo_AppendsALinePerDumpWithRates() throws IOException {
+        Path file = Files.createTempFile("metrics", ".txt");
+        try {
+            GameMetrics metrics = new GameMetrics();
+            metrics.dumpTo(file, 60_000, Logger.getLogger("GameMetricsTest"));
+            metrics.tokenOp();
+            metrics.dump();
+            metrics.tokenOp();
+            metrics.close();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(0).startsWith("time="));
+            assertTrue(lines.get(0).contains(" tokens.ops=1 tokens.ops.rate="));
+            assertTrue(lines.get(1).contains(" tokens.ops=2 "));
+            assertTrue(lines.get(1).contains(" claims.pending=0"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void dump_AWriteErrorIsLoggedAndStopsTheDumps() throws IOException {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        Logger logger = Logger.getLogger("GameMetricsTest.errors");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        boolean[] closed = new boolean[1];
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        GameMetrics metrics = new GameMetrics();
+        metrics.dumpTo(failing, 60_000, logger);
+        metrics.dump();
+        assertEquals(1, records.size());
+        assertTrue(closed[0]);
+
+        metrics.dump();
+        metrics.close();
+        assertEquals(1, records.size());
+    }
+}
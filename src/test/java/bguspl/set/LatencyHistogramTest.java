@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valueAtPercentile_SmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++)
+            histogram.record(value);
+
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.valueAtPercentile(50));
+        assertEquals(99, histogram.valueAtPercentile(99));
+        assertEquals(100, histogram.valueAtPercentile(100));
+        assertEquals(100, histogram.max());
+        assertEquals(50.5, histogram.mean(), 1e-9);
+    }
+
+    @Test
+    void valueAtPercentile_LargeValuesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10_000];
+        Random random = new Random(7);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + (long) (random.nextDouble() * 10_000_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{50, 99, 99.9}) {
+            long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long actual = histogram.valueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 64, percentile + ": " + actual + " vs " + expected);
+        }
+        assertEquals(values[values.length - 1], histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    void indexOf_BucketsCoverEveryValueOnce() {
+        for (long value : new long[]{0, 127, 128, 129, 130, 1 << 20, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+            if (index > 0) assertTrue(LatencyHistogram.highestValueAt(index - 1) < value);
+        }
+    }
+
+    @Test
+    void add_MergesCountsAndMax() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(1_000_000);
+        second.record(-5);
+
+        first.add(second);
+
+        assertEquals(3, first.count());
+        assertEquals(1_000_010, first.total());
+        assertEquals(1_000_000, first.max());
+        assertEquals(0, first.valueAtPercentile(1));
+
+        first.reset();
+        assertEquals(0, first.count());
+        assertEquals(0, first.valueAtPercentile(50));
+    }
+}
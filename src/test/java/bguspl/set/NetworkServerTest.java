@@ -0,0 +1,121 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NetworkServerTest {
+
+    NetworkServer server;
+    NetworkClient client;
+    InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        Logger logger = Logger.getLogger("NetworkServerTest");
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+
+        server = new NetworkServer(logger, config, new Player[config.players], 0);
+        new Thread(server, "network-server").start();
+        client = new NetworkClient();
+        address = new InetSocketAddress("localhost", server.port());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    private void pollUntil(BooleanSupplier condition) throws IOException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            client.poll(10);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    void broadcasting_SendsEventsToAllConnections() throws IOException {
+        client.connect(address, 0);
+        client.connect(address, -1);
+        pollUntil(() -> server.connections() == 2);
+
+        UserInterface ui = server.broadcasting(null);
+        ui.placeCard(7, 3);
+        ui.placeToken(0, 3);
+        ui.announceWinner(new int[]{0, 1});
+
+        pollUntil(() -> client.received() == 8);
+        assertEquals(2, client.received(GameJournal.Type.CardPlaced));
+        assertEquals(2, client.received(GameJournal.Type.TokenPlaced));
+        assertEquals(4, client.received(GameJournal.Type.Winner));
+    }
+
+    @Test
+    void broadcasting_EventsOfManyBatchesAllArrive() throws IOException {
+        client.connect(address, 0);
+        pollUntil(() -> server.connections() == 1);
+
+        // more events than the encoder batches at once
+        UserInterface ui = server.broadcasting(null);
+        for (int i = 0; i < 600; i++)
+            ui.setElapsed(i);
+
+        pollUntil(() -> client.received() == 600);
+        assertEquals(600, client.received(GameJournal.Type.Elapsed));
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void watch_SendsSnapshotThenDeltas() throws IOException {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        StatePublisher publisher = new StatePublisher(new Config(Logger.getLogger("NetworkServerTest"), properties),
+                null, 10);
+        try {
+            server.watch(publisher);
+            client.watch(address);
+            pollUntil(() -> client.states() == 1);
+            assertTrue(client.lastState().snapshot);
+
+            publisher.placeCard(7, 3);
+            pollUntil(() -> client.states() == 2);
+            assertEquals(7, client.lastState().cards[3]);
+            assertEquals(1, client.lastState().slots.cardinality());
+        } finally {
+            publisher.close();
+        }
+    }
+
+    @Test
+    void join_SecondConnectionForTheSamePlayerIsDropped() throws IOException {
+        client.connect(address, 0);
+        pollUntil(() -> server.connections() == 1);
+        client.connect(address, 0);
+        pollUntil(() -> client.connections() == 1);
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void join_ComputerPlayerIsRejected() throws IOException {
+        client.connect(address, 1);
+        pollUntil(() -> client.connections() == 0);
+        assertEquals(0, server.connections());
+    }
+}
@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingWriterTest {
+
+    static class Entry {
+        int producer;
+        int value;
+    }
+
+    /**
+     * Collects the written values by producer. Only the writer thread touches it until the ring is closed.
+     */
+    static class Collector implements RingWriter.Sink<Entry> {
+        final List<List<Integer>> values = new ArrayList<>();
+        volatile int written;
+        int batches;
+        boolean closed;
+
+        Collector(int producers) {
+            for (int p = 0; p < producers; p++)
+                values.add(new ArrayList<>());
+        }
+
+        @Override
+        public void write(Entry entry) {
+            values.get(entry.producer).add(entry.value);
+            written++;
+        }
+
+        @Override
+        public void endOfBatch() {
+            batches++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static void put(RingWriter<Entry> ring, int producer, int value) {
+        long sequence = ring.claim();
+        Entry entry = ring.entry(sequence);
+        entry.producer = producer;
+        entry.value = value;
+        ring.publish(sequence);
+    }
+
+    @Test
+    void flush_WritesEverythingPublishedBefore() {
+        Collector sink = new Collector(1);
+        RingWriter<Entry> ring = new RingWriter<>(16, Entry::new, sink, "test-writer");
+        for (int i = 0; i < 10; i++)
+            put(ring, 0, i);
+        ring.flush();
+        assertEquals(10, sink.written);
+        ring.close();
+    }
+
+    @Test
+    void close_WritesTheEntriesInOrderAndClosesTheSink() throws InterruptedException {
+        int producers = 3;
+        int perProducer = 5_000;
+        Collector sink = new Collector(producers);
+        // a small ring, so the producers keep waiting for the writer
+        RingWriter<Entry> ring = new RingWriter<>(8, Entry::new, sink, "test-writer");
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++)
+                    put(ring, producer, i);
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        ring.close();
+
+        assertTrue(ring.isClosed());
+        assertTrue(sink.closed);
+        assertTrue(sink.batches > 0);
+        for (List<Integer> values : sink.values) {
+            assertEquals(perProducer, values.size());
+            for (int i = 0; i < perProducer; i++)
+                assertEquals(i, (int) values.get(i));
+        }
+    }
+}
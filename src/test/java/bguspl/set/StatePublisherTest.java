@@ -0,0 +1,170 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatePublisherTest {
+
+    StatePublisher publisher;
+    List<StatePublisher.Delta> received;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        Logger logger = Logger.getLogger("StatePublisherTest");
+        logger.setLevel(Level.OFF);
+        Config config = new Config(logger, properties);
+
+        // a tick long enough to never come, so the test publishes by itself
+        publisher = new StatePublisher(config, null, Long.MAX_VALUE / 2);
+        received = new ArrayList<>();
+        publisher.subscribe(received::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    @Test
+    void subscribe_GetsSnapshotFirst() {
+        assertEquals(1, received.size());
+        StatePublisher.Delta snapshot = received.get(0);
+        assertTrue(snapshot.snapshot);
+        assertEquals(12, snapshot.slots.cardinality());
+        assertEquals(-1, snapshot.cards[0]);
+        assertEquals(2, snapshot.players.cardinality());
+    }
+
+    @Test
+    void publish_CoalescesChangesIntoOneDelta() {
+        publisher.placeCard(5, 3);
+        publisher.placeCard(6, 4);
+        publisher.placeToken(1, 3);
+        publisher.placeToken(0, 3);
+        publisher.removeToken(0, 3);
+        publisher.setScore(1, 2);
+        publisher.setFreeze(1, 1000);
+        publisher.publish();
+
+        assertEquals(2, received.size());
+        StatePublisher.Delta delta = received.get(1);
+        assertFalse(delta.snapshot);
+        assertEquals(1, delta.sequence);
+        assertEquals(2, delta.slots.cardinality());
+        assertEquals(5, delta.cards[3]);
+        assertEquals(6, delta.cards[4]);
+        assertEquals(1L << 1, delta.tokens[3]);
+        assertEquals(1, delta.players.cardinality());
+        assertEquals(2, delta.scores[1]);
+        assertEquals(1000, delta.freezes[1]);
+        assertFalse(delta.countdownChanged);
+        assertNull(delta.winners);
+    }
+
+    @Test
+    void publish_NothingChanged() {
+        publisher.publish();
+        assertEquals(1, received.size());
+
+        publisher.setCountdown(5000, true);
+        publisher.publish();
+        publisher.publish();
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void subscribe_WhilePublishing_MissesNoChangeAndNeverGoesBack() throws InterruptedException {
+        Thread changer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                publisher.placeCard(i, i % 12);
+                if (i % 7 == 0) publisher.publish();
+            }
+        });
+        List<int[]> models = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        changer.start();
+        while (changer.isAlive() && models.size() < 200) {
+            int[] cards = new int[12];
+            long[] last = {-1};
+            models.add(cards);
+            publisher.subscribe(delta -> {
+                if (delta.sequence <= last[0] && !(delta.snapshot && last[0] < 0))
+                    errors.add("delta " + delta.sequence + " after " + last[0]);
+                last[0] = delta.sequence;
+                for (int slot = delta.slots.nextSetBit(0); slot >= 0; slot = delta.slots.nextSetBit(slot + 1))
+                    cards[slot] = delta.cards[slot];
+            });
+            Thread.yield();
+        }
+        changer.join();
+        publisher.publish();
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        int[] expected = publisher.snapshot().cards;
+        for (int[] cards : models)
+            assertArrayEquals(expected, cards);
+    }
+
+    @Test
+    void placeToken_ConcurrentChangesOfASlotLoseNoToken() throws InterruptedException {
+        Thread[] players = new Thread[2];
+        for (int p = 0; p < players.length; p++) {
+            int player = p;
+            players[p] = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    publisher.placeToken(player, 0);
+                    publisher.removeToken(player, 0);
+                }
+                publisher.placeToken(player, 0);
+            });
+            players[p].start();
+        }
+        for (Thread player : players)
+            player.join();
+        publisher.publish();
+
+        StatePublisher.Delta delta = received.get(received.size() - 1);
+        assertTrue(delta.slots.get(0));
+        assertEquals(0b11L, delta.tokens[0]);
+    }
+
+    @Test
+    void encode_RoundTrip() {
+        publisher.placeCard(80, 11);
+        publisher.placeToken(1, 11);
+        publisher.setCountdown(1234, true);
+        publisher.setScore(0, 3);
+        publisher.announceWinner(new int[]{0});
+        publisher.publish();
+
+        StatePublisher.Delta delta = received.get(1);
+        StatePublisher.Delta decoded = StatePublisher.Delta.decode(ByteBuffer.wrap(delta.encode()));
+        assertEquals(delta.sequence, decoded.sequence);
+        assertEquals(delta.slots, decoded.slots);
+        assertEquals(80, decoded.cards[11]);
+        assertEquals(1L << 1, decoded.tokens[11]);
+        assertEquals(delta.players, decoded.players);
+        assertEquals(3, decoded.scores[0]);
+        assertTrue(decoded.countdownChanged);
+        assertEquals(1234, decoded.countdown);
+        assertTrue(decoded.warn);
+        assertArrayEquals(new int[]{0}, decoded.winners);
+    }
+}
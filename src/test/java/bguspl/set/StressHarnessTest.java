@@ -0,0 +1,30 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StressHarnessTest {
+
+    @Test
+    void run_HammersTheTableAndTimesEveryOperation() throws InterruptedException {
+        Logger logger = Logger.getLogger("StressHarnessTest");
+        StressHarness harness = new StressHarness(logger, StressHarness.config(logger, 3, 12, 0));
+        logger.setLevel(Level.OFF);
+
+        harness.run(500);
+
+        assertTrue(harness.games() > 0);
+        assertTrue(harness.tokenOps().count() > 0);
+        assertTrue(harness.submits().count() > 0);
+        assertTrue(harness.claims().count() <= harness.submits().count());
+        assertTrue(harness.blockedOps().count() <= harness.tokenOps().count());
+        assertTrue(harness.lockHolds().count() > 0);
+        assertEquals(harness.lockWaits().count(), harness.lockHolds().count());
+        assertTrue(harness.summary().contains("token ops"));
+    }
+}
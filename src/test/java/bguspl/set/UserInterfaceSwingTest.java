@@ -0,0 +1,70 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserInterfaceSwingTest {
+
+    UserInterfaceSwing.ShownState state;
+
+    @BeforeEach
+    void setUp() {
+        state = new UserInterfaceSwing.ShownState(12, 2);
+    }
+
+    @Test
+    void takeDirtySlots_GivesEachChangedSlotOnceWithItsLatestValues() {
+        state.placeCard(7, 5);
+        state.placeCard(3, 1);
+        state.setToken(1, 5, true);
+        state.placeCard(9, 5);
+
+        List<UserInterfaceSwing.SlotUpdate> updates = state.takeDirtySlots();
+        assertEquals(2, updates.size());
+        assertEquals(1, updates.get(0).slot);
+        assertEquals(3, updates.get(0).card);
+        assertEquals(5, updates.get(1).slot);
+        assertEquals(9, updates.get(1).card);
+        assertArrayEquals(new boolean[]{false, true}, updates.get(1).tokens);
+    }
+
+    @Test
+    void takeDirtySlots_ClearsTheChanges() {
+        state.placeCard(7, 5);
+        state.takeDirtySlots();
+        assertTrue(state.takeDirtySlots().isEmpty());
+
+        state.removeCard(5);
+        List<UserInterfaceSwing.SlotUpdate> updates = state.takeDirtySlots();
+        assertEquals(1, updates.size());
+        assertEquals(-1, updates.get(0).card);
+    }
+
+    @Test
+    void takeDirtySlots_GivesACopyThatLaterChangesDoNotTouch() {
+        state.setToken(0, 2, true);
+        UserInterfaceSwing.SlotUpdate update = state.takeDirtySlots().get(0);
+
+        state.removeAllTokens();
+        assertArrayEquals(new boolean[]{true, false}, update.tokens);
+        assertEquals(12, state.takeDirtySlots().size());
+    }
+
+    @Test
+    void sampledValues_OnlyTheLatestIsShown() {
+        state.freezes.set(1, 3000);
+        state.freezes.set(1, 2000);
+        state.scores.set(0, 1);
+        state.scores.set(0, 2);
+
+        assertEquals(2000, state.freezes.get(1));
+        assertEquals(2, state.scores.get(0));
+        assertTrue(state.takeDirtySlots().isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    Util util;
+
+    private static Util createUtil(int featureCount, int featureSize) {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        Logger logger = Logger.getLogger("UtilImplTest");
+        return new UtilImpl(new Config(logger, properties));
+    }
+
+    @BeforeEach
+    void setUp() {
+        util = createUtil(4, 3);
+    }
+
+    @Test
+    void cardToFeatures_Base3Digits() {
+        assertArrayEquals(new int[]{0, 0, 0, 0}, util.cardToFeatures(0));
+        assertArrayEquals(new int[]{1, 0, 2, 1}, util.cardToFeatures(34));
+        assertArrayEquals(new int[]{2, 2, 2, 2}, util.cardToFeatures(80));
+    }
+
+    @Test
+    void cardToBitmask_OneBitPerFeature() {
+        assertEquals(0b001_001_001_001L, util.cardToBitmask(0));
+        assertEquals(0b010_100_001_010L, util.cardToBitmask(34));
+    }
+
+    @Test
+    void testSet_LegalSets() {
+        assertTrue(util.testSet(new int[]{0, 1, 2}));    // only the last feature differs
+        assertTrue(util.testSet(new int[]{0, 40, 80}));  // all features differ
+        assertTrue(util.testSet(new int[]{5, 16, 18}));  // mixed
+    }
+
+    @Test
+    void testSet_IllegalSets() {
+        assertFalse(util.testSet(new int[]{0, 1, 5}));
+        assertFalse(util.testSet(new int[]{0, 40, 79}));
+        assertFalse(util.testSet(new int[]{0}));
+    }
+
+    @Test
+    void testSet_FeaturesDoNotFitInBitmask() {
+        Util wide = createUtil(5, 13);
+        assertEquals(0L, wide.cardToBitmask(1));
+        int[] cards = new int[13];
+        for (int i = 0; i < cards.length; ++i) cards[i] = i;
+        assertTrue(wide.testSet(cards));
+        cards[12] = 0;
+        assertFalse(wide.testSet(cards));
+    }
+
+    @Test
+    void findSets_FullDeck() {
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(1080, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        assertEquals(1, util.findSets(deck, 1).size());
+    }
+
+    @Test
+    void findSets_NoSets() {
+        assertTrue(util.findSets(Arrays.asList(0, 1, 5, 40), Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void findSets_GeneralizedFeatureSize() {
+        Util util = createUtil(2, 4);
+        List<Integer> deck = IntStream.range(0, 16).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(4 + 4 + 24, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+}
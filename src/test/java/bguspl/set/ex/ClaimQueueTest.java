@@ -0,0 +1,147 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    ClaimQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new ClaimQueue();
+    }
+
+    private static CardSet claim(int player, int number) {
+        return new CardSet(new int[]{number, number + 1, number + 2}, player);
+    }
+
+    @Test
+    void poll_EmptyQueue() {
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void poll_InTheOrderOffered() {
+        CardSet[] claims = {claim(0, 0), claim(1, 3), claim(0, 6)};
+        for (CardSet set : claims)
+            queue.offer(set);
+        assertFalse(queue.isEmpty());
+        for (CardSet set : claims)
+            assertSame(set, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void offer_ManyProducersLoseNoClaim() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int player = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++)
+                    queue.offer(claim(player, i));
+            });
+            threads[p].start();
+        }
+
+        // consume while producing: every claim arrives once, in the order its producer offered it
+        int[] next = new int[producers];
+        int polled = 0;
+        while (polled < producers * perProducer) {
+            CardSet set = queue.poll();
+            if (set == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[set.getPlayerId()]++, set.getSlots()[0]);
+            polled++;
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++)
+            assertEquals(perProducer, next[p]);
+    }
+
+    @Test
+    void await_ReturnsAtOnceIfThereAreClaims() {
+        queue.offer(claim(0, 0));
+        long start = System.nanoTime();
+        queue.await(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void await_ParksUntilTheTimeout() {
+        long start = System.nanoTime();
+        queue.await(TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    void await_NoWakeUpIsLost() throws InterruptedException {
+        int claims = 20_000;
+        int[] polled = new int[1];
+        // the consumer parks for so long that a lost wake-up would hang it past the join below
+        Thread consumer = new Thread(() -> {
+            while (polled[0] < claims) {
+                if (queue.poll() != null) polled[0]++;
+                else queue.await(TimeUnit.MINUTES.toNanos(1));
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+        Thread[] producers = new Thread[2];
+        for (int p = 0; p < producers.length; p++) {
+            int player = p;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < claims / producers.length; i++) {
+                    queue.offer(claim(player, i));
+                    if (i % 64 == 0) Thread.yield();
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers)
+            producer.join();
+        consumer.join(TimeUnit.SECONDS.toMillis(20));
+        assertFalse(consumer.isAlive(), "the consumer missed a wake-up");
+        assertEquals(claims, polled[0]);
+    }
+
+    @Test
+    void wakeUp_EndsAnAwaitWithoutAClaim() throws InterruptedException {
+        Thread consumer = new Thread(() -> queue.await(TimeUnit.MINUTES.toNanos(1)));
+        consumer.setDaemon(true);
+        consumer.start();
+        // a single wake-up is enough, whether it comes before the consumer parks or after
+        queue.wakeUp();
+        consumer.join(TimeUnit.SECONDS.toMillis(20));
+        assertFalse(consumer.isAlive());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void wakeUp_BeforeAwaitEndsTheNextAwaitOnly() {
+        queue.wakeUp();
+        long start = System.nanoTime();
+        queue.await(TimeUnit.MINUTES.toNanos(1));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        start = System.nanoTime();
+        queue.await(TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+}
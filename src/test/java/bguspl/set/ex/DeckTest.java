@@ -0,0 +1,60 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    Deck deck;
+
+    @BeforeEach
+    void setUp() {
+        deck = new Deck(81);
+    }
+
+    private int[] sortedCards() {
+        int[] cards = Arrays.copyOf(deck.cards(), deck.size());
+        Arrays.sort(cards);
+        return cards;
+    }
+
+    @Test
+    void draw_RemovesTopCard() {
+        int top = deck.cards()[deck.size() - 1];
+        assertEquals(top, deck.draw());
+        assertEquals(80, deck.size());
+    }
+
+    @Test
+    void draw_UntilEmpty() {
+        while (!deck.isEmpty())
+            deck.draw();
+        assertEquals(0, deck.size());
+    }
+
+    @Test
+    void add_ReturnsCardToDeck() {
+        int card = deck.draw();
+        assertFalse(Arrays.stream(sortedCards()).anyMatch(c -> c == card));
+
+        deck.add(card);
+        assertEquals(81, deck.size());
+        assertTrue(Arrays.stream(sortedCards()).anyMatch(c -> c == card));
+    }
+
+    @Test
+    void shuffle_KeepsAllCards() {
+        deck.draw();
+        int[] before = sortedCards();
+        deck.shuffle(new Random(0));
+        assertArrayEquals(before, sortedCards());
+    }
+}
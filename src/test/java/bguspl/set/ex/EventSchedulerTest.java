@@ -0,0 +1,136 @@
+package bguspl.set.ex;
+
+import bguspl.set.ManualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventSchedulerTest {
+
+    /**
+     * A manual clock whose waits last as long in real time as in game time, so a parked thread stays parked until
+     * the event is due or something wakes it up.
+     */
+    static class ParkingClock extends ManualClock {
+
+        ParkingClock(long start) {
+            super(start);
+        }
+
+        @Override
+        public long toNanos(long millis) {
+            return TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+    }
+
+    ManualClock clock;
+    ClaimQueue inbox;
+    EventScheduler scheduler;
+    List<String> ran;
+
+    @BeforeEach
+    void setUp() {
+        clock = new ParkingClock(0);
+        inbox = new ClaimQueue();
+        scheduler = new EventScheduler(inbox, clock);
+        ran = new ArrayList<>();
+    }
+
+    private Runnable record(String name) {
+        return () -> ran.add(name);
+    }
+
+    @Test
+    void runDueEvents_InTimeOrderThenSchedulingOrder() {
+        scheduler.schedule(300, record("c"));
+        scheduler.schedule(100, record("a1"));
+        scheduler.schedule(200, record("b"));
+        scheduler.schedule(100, record("a2"));
+
+        scheduler.runDueEvents();
+        assertTrue(ran.isEmpty());
+
+        clock.advanceTo(150);
+        scheduler.runDueEvents();
+        assertEquals(Arrays.asList("a1", "a2"), ran);
+
+        clock.advanceTo(300);
+        scheduler.runDueEvents();
+        assertEquals(Arrays.asList("a1", "a2", "b", "c"), ran);
+    }
+
+    @Test
+    void runDueEvents_EventsScheduledByEventsRunWhenDue() {
+        scheduler.schedule(100, () -> {
+            ran.add("a");
+            scheduler.schedule(100, record("now"));
+            scheduler.schedule(200, record("later"));
+        });
+        clock.advanceTo(100);
+        scheduler.runDueEvents();
+        assertEquals(Arrays.asList("a", "now"), ran);
+    }
+
+    @Test
+    void cancel_TheEventNeverRuns() {
+        EventScheduler.Event cancelled = scheduler.schedule(100, record("cancelled"));
+        EventScheduler.Event done = scheduler.schedule(50, record("done"));
+        scheduler.schedule(100, record("kept"));
+        scheduler.cancel(cancelled);
+
+        clock.advanceTo(100);
+        scheduler.runDueEvents();
+        assertEquals(Arrays.asList("done", "kept"), ran);
+
+        // cancelling an event that ran, or no event, does nothing
+        scheduler.cancel(done);
+        scheduler.cancel(null);
+        clock.advanceTo(200);
+        scheduler.runDueEvents();
+        assertEquals(Arrays.asList("done", "kept"), ran);
+    }
+
+    @Test
+    void awaitNextEvent_ReturnsAtOnceIfAClaimIsWaiting() {
+        scheduler.schedule(60_000, record("a"));
+        inbox.offer(new CardSet(new int[]{0, 1, 2}, 0));
+        long start = System.nanoTime();
+        scheduler.awaitNextEvent();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void awaitNextEvent_AClaimWakesUpTheDealerEarly() throws InterruptedException {
+        scheduler.schedule(60_000, record("a"));
+        Thread dealer = awaitOnNewThread();
+        inbox.offer(new CardSet(new int[]{0, 1, 2}, 0));
+        dealer.join(TimeUnit.SECONDS.toMillis(20));
+        assertFalse(dealer.isAlive(), "the claim did not wake up the dealer");
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    void awaitNextEvent_AnEarlierEventWakesUpTheDealer() throws InterruptedException {
+        scheduler.schedule(60_000, record("a"));
+        Thread dealer = awaitOnNewThread();
+        // whether the dealer parked already or not, the earlier event ends its wait
+        scheduler.schedule(10, record("b"));
+        dealer.join(TimeUnit.SECONDS.toMillis(20));
+        assertFalse(dealer.isAlive(), "the earlier event did not wake up the dealer");
+    }
+
+    private Thread awaitOnNewThread() {
+        Thread thread = new Thread(scheduler::awaitNextEvent);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
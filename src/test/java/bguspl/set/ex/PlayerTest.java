@@ -2,6 +2,9 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.GameMetrics;
+import bguspl.set.ManualClock;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
 import org.junit.jupiter.api.AfterEach;
@@ -11,6 +14,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -70,4 +78,52 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateFreeze_ShowsTheFreezeUntilThePlayerIsFree() {
+        Logger quiet = Logger.getLogger("PlayerTest");
+        quiet.setLevel(Level.OFF);
+        Properties properties = new Properties();
+        properties.put("PointFreezeSeconds", "1.5");
+        properties.put("PenaltyFreezeSeconds", "3");
+        properties.put("FreezeRefreshSeconds", "1");
+        Config config = new Config(quiet, properties);
+        List<Long> freezes = new ArrayList<>();
+        UserInterface recording = new TableTest.MockUserInterface() {
+            @Override
+            public void setFreeze(int player, long millies) {
+                freezes.add(millies);
+            }
+        };
+        ManualClock clock = new ManualClock(0);
+        Env env = new Env(quiet, config, recording, new TableTest.MockUtil(), GameJournal.disabled(), clock, clock,
+                clock, GameMetrics.disabled());
+        Player[] players = new Player[1];
+        Table table = new Table(env);
+        Player frozen = new Player(env, new Dealer(env, table, players), table, 0, false);
+        players[0] = frozen;
+
+        // a point freeze: shown at once, then at every whole second left, and the player is free after 1.5 s
+        frozen.notifyResult(Player.State.Point);
+        frozen.point();
+        assertEquals(Arrays.asList(1500L), freezes);
+        clock.advanceTo(500);
+        assertEquals(Arrays.asList(1500L, 1000L), freezes);
+        clock.advanceTo(1499);
+        assertEquals(Player.State.Point, frozen.freezeState);
+        clock.advanceTo(1500);
+        assertEquals(Arrays.asList(1500L, 1000L, 0L), freezes);
+        assertEquals(Player.State.Free, frozen.freezeState);
+
+        // a penalty freeze
+        freezes.clear();
+        frozen.notifyResult(Player.State.Penalty);
+        frozen.penalty();
+        clock.advanceTo(4499);
+        assertEquals(Arrays.asList(3000L, 2000L, 1000L), freezes);
+        assertEquals(Player.State.Penalty, frozen.freezeState);
+        clock.advanceTo(4500);
+        assertEquals(Arrays.asList(3000L, 2000L, 1000L, 0L), freezes);
+        assertEquals(Player.State.Free, frozen.freezeState);
+    }
+}
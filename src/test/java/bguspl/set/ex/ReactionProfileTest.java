@@ -0,0 +1,62 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReactionProfileTest {
+
+    private static ReactionProfile profile(String... settings) {
+        Properties properties = new Properties();
+        for (int i = 0; i < settings.length; i += 2)
+            properties.put(settings[i], settings[i + 1]);
+        return new ReactionProfile(new Config(new TableTest.MockLogger(), properties));
+    }
+
+    @Test
+    void profile_DisabledByDefault() {
+        ReactionProfile profile = profile();
+        assertFalse(profile.enabled());
+        assertEquals(0, profile.reactionMillis(new Random(1)));
+        assertFalse(profile.mistake(new Random(1)));
+    }
+
+    @Test
+    void profile_PresetCanBeOverridden() {
+        ReactionProfile profile = profile("AiProfile", "Casual", "AiKeysPerSecond", "4");
+        assertTrue(profile.enabled());
+        assertEquals(250, profile.keyIntervalMillis());
+    }
+
+    @Test
+    void reactionMillis_FollowsTheDistribution() {
+        ReactionProfile profile = profile("AiReactionSeconds", "0.5", "AiReactionJitterSeconds", "0.1",
+                "AiReactionTailSeconds", "0.2");
+        Random random = new Random(7);
+        int samples = 20000;
+        long total = 0;
+        for (int i = 0; i < samples; i++) {
+            long millis = profile.reactionMillis(random);
+            assertTrue(millis >= 0);
+            total += millis;
+        }
+        double mean = (double) total / samples;
+        assertTrue(Math.abs(mean - 700) < 15, "mean " + mean);
+    }
+
+    @Test
+    void mistake_HappensAtTheErrorRate() {
+        ReactionProfile profile = profile("AiErrorRate", "0.25");
+        Random random = new Random(3);
+        int samples = 20000, mistakes = 0;
+        for (int i = 0; i < samples; i++)
+            if (profile.mistake(random)) ++mistakes;
+        assertTrue(Math.abs(mistakes - samples / 4) < 400, "mistakes " + mistakes);
+    }
+}
@@ -0,0 +1,90 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SetSeekingStrategyTest {
+
+    Table table;
+    SetSeekingStrategy strategy;
+    private Integer[] slotToCard;
+    private Integer[] cardToSlot;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+
+        // cards 0, 1 and 2 are the only set on the table (they differ only in the last feature)
+        int[] cards = {4, 2, 0, 1};
+        for (int slot = 0; slot < cards.length; slot++) {
+            slotToCard[slot] = cards[slot];
+            cardToSlot[cards[slot]] = slot;
+        }
+
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+        strategy = new SetSeekingStrategy(env, table, 0);
+    }
+
+    private int[] pressAll() {
+        int[] keys = new int[4];
+        int n = 0;
+        for (int key = strategy.nextKey(0); key != Strategy.NONE && n < keys.length; key = strategy.nextKey(0)) {
+            keys[n++] = key;
+            table.placeOrRemoveToken(0, key);
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    @Test
+    void nextKey_PlacesTokensOnTheSet() {
+        assertArrayEquals(new int[]{1, 2, 3}, pressAll());
+        assertEquals(Strategy.NONE, strategy.nextKey(0));
+    }
+
+    @Test
+    void nextKey_RemovesOtherTokensFirst() {
+        table.placeToken(0, 0);
+        table.placeToken(0, 2);
+        assertArrayEquals(new int[]{0, 1, 3}, pressAll());
+    }
+
+    @Test
+    void nextKey_WaitsForPendingKeysBeforePlanning() {
+        assertEquals(Strategy.NONE, strategy.nextKey(1));
+    }
+
+    @Test
+    void nextKey_DropsThePlanWhenACardIsReplaced() {
+        assertEquals(1, strategy.nextKey(0));
+        table.placeOrRemoveToken(0, 1);
+
+        // the dealer replaces card 0 in slot 2 with card 5, which breaks the set
+        slotToCard[2] = 5;
+        cardToSlot[0] = null;
+        cardToSlot[5] = 2;
+        int key = strategy.nextKey(0);
+        assertTrue(key >= 0 && key < 4); // no set on the table any more: a random key
+    }
+}
@@ -2,22 +2,32 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.GameMetrics;
+import bguspl.set.ManualClock;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private Config config;
+    private MockLogger logger;
 
     @BeforeEach
     void setUp() {
@@ -30,8 +40,8 @@ class TableTest {
         properties.put("TableDelaySeconds", "0");
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
-        MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
+        logger = new MockLogger();
+        config = new Config(logger, properties);
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
@@ -95,6 +105,129 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void placeCard_IndexesSetsOnTable() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(5, 3);
+        assertFalse(table.hasSets());
+
+        table.placeCard(2, 2);
+        assertTrue(table.hasSets());
+    }
+
+    @Test
+    void removeCard_DropsSetsOfRemovedCard() {
+        Table table = new Table(new Env(logger, config, new MockUserInterface(), new UtilImpl(config)));
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        assertTrue(table.hasSets());
+
+        table.removeCard(1);
+        assertFalse(table.hasSets());
+    }
+
+    @Test
+    void placeCard_IndexesTheSetsThatFindSetsFinds() {
+        for (String featureSize : new String[]{"3", "4"}) {
+            Properties properties = new Properties();
+            properties.put("Rows", "3");
+            properties.put("Columns", "4");
+            properties.put("FeatureSize", featureSize);
+            properties.put("FeatureCount", "3");
+            properties.put("TableDelaySeconds", "0");
+            properties.put("PlayerKeys1", "81,87,69,82");
+            properties.put("PlayerKeys2", "85,73,79,80");
+            Config config = new Config(logger, properties);
+            Util util = new UtilImpl(config);
+            Table table = new Table(new Env(logger, config, new MockUserInterface(), util));
+            boolean[] onTable = new boolean[config.deckSize];
+            int[] cards = new int[config.tableSize];
+            Random random = new Random(0);
+
+            // fill and empty random slots, and check the index after every change
+            for (int change = 0; change < 500; ++change) {
+                int slot = random.nextInt(config.tableSize);
+                int card = table.getCard(slot);
+                if (card == -1) {
+                    do card = random.nextInt(config.deckSize); while (onTable[card]);
+                    table.placeCard(card, slot);
+                } else table.removeCard(slot);
+                onTable[card] = !onTable[card];
+
+                int size = 0;
+                for (int other = 0; other < config.deckSize; ++other)
+                    if (onTable[other]) cards[size++] = other;
+                assertEquals(!util.findSets(cards, size, 1).isEmpty(), table.hasSets());
+            }
+        }
+    }
+
+    @Test
+    void placeOrRemoveToken_TogglesToken() {
+        fillAllSlots();
+        assertTrue(table.placeOrRemoveToken(0, 1));
+        assertArrayEquals(new int[]{1, 0, 0}, table.getPlayerSlots(0));
+
+        assertTrue(table.placeOrRemoveToken(0, 1));
+        assertArrayEquals(new int[]{0, 0, 0}, table.getPlayerSlots(0));
+    }
+
+    @Test
+    void placeOrRemoveToken_RecordsMetrics() {
+        GameMetrics metrics = new GameMetrics();
+        ManualClock clock = new ManualClock(0);
+        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil(), GameJournal.disabled(), clock, clock,
+                clock, metrics);
+        table = new Table(env, slotToCard, cardToSlot);
+        fillSomeSlots();
+
+        assertTrue(table.placeOrRemoveToken(0, 1));
+        assertTrue(table.placeOrRemoveToken(0, 1));
+        assertFalse(table.placeOrRemoveToken(0, 0));
+        table.lockTable();
+        table.unlockTable();
+
+        assertEquals(2, metrics.counter(GameMetrics.TOKEN_OPS).sum());
+        assertEquals(1, metrics.histogram(GameMetrics.TABLE_LOCK_NANOS).count());
+    }
+
+    @Test
+    void placeToken_EmptySlot() {
+        fillSomeSlots();
+        assertFalse(table.placeToken(0, 0));
+    }
+
+    @Test
+    void playerHasMaxTokens_AfterFeatureSizeTokens() {
+        fillAllSlots();
+        table.placeToken(1, 0);
+        table.placeToken(1, 2);
+        assertFalse(table.playerHasMaxTokens(1));
+
+        table.placeToken(1, 3);
+        assertTrue(table.playerHasMaxTokens(1));
+        assertFalse(table.placeToken(1, 1));
+        assertArrayEquals(new int[]{0, 2, 3}, table.getPlayerSlots(1));
+        assertTrue(table.isLegalSet(1, new int[]{0, 2, 3}));
+        assertFalse(table.isLegalSet(0, new int[]{0, 2, 3}));
+    }
+
+    @Test
+    void removeCard_RemovesAllTokensOnSlot() {
+        fillAllSlots();
+        table.placeToken(0, 2);
+        table.placeToken(1, 2);
+        table.placeToken(1, 3);
+
+        table.removeCard(2);
+        assertArrayEquals(new int[]{0, 0, 0}, table.getPlayerSlots(0));
+        assertArrayEquals(new int[]{3, 0, 0}, table.getPlayerSlots(1));
+        assertFalse(table.playerHasMaxTokens(1));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -133,16 +266,31 @@ class TableTest {
             return new int[0][];
         }
 
+        @Override
+        public long cardToBitmask(int card) {
+            return 0;
+        }
+
         @Override
         public boolean testSet(int[] cards) {
             return false;
         }
 
+        @Override
+        public int thirdCard(int first, int second) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
 
+        @Override
+        public List<int[]> findSets(int[] cards, int size, int count) {
+            return null;
+        }
+
         @Override
         public void spin() {}
     }